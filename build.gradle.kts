@@ -6,13 +6,75 @@ repositories {
     mavenCentral()
 }
 
+// JMH benchmarks live in src/jmh/java and run with ./gradlew jmh
+sourceSets {
+    create("jmh") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+val jmhImplementation: Configuration by configurations.getting {
+    extendsFrom(configurations.implementation.get())
+}
+
 dependencies {
     implementation("org.jetbrains:annotations:24.1.0")
     testImplementation("org.junit.jupiter:junit-jupiter-api:5.10.0")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.10.0")
     testImplementation("org.junit.jupiter:junit-jupiter-params:5.10.0")
+    jmhImplementation("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+// The vectorized lexer scanner uses the incubating Vector API
+val vectorModule = listOf("--add-modules", "jdk.incubator.vector")
+
+// The off-heap storage uses the Foreign Function & Memory API, a preview API in JDK 21.
+// Preview features require the release of the running JDK, only the classes using them need the flag at run time.
+val previewFeatures = listOf("--enable-preview")
+val jvmFlags = vectorModule + previewFeatures
+
+tasks.withType<JavaCompile> {
+    options.release.set(JavaVersion.current().majorVersion.toInt())
+    options.compilerArgs.addAll(jvmFlags)
 }
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+    jvmArgs(jvmFlags)
+}
+
+tasks.jar {
+    manifest {
+        attributes("Main-Class" to "cli.Main")
+    }
+}
+
+// Application Class Data Sharing archive for fast CLI startup, trained on a parse of the test programs.
+// Usage: java -XX:SharedArchiveFile=build/cds/parso-tangue.jsa -jar build/libs/parso-tangue.jar parse <files>
+tasks.register<Exec>("cdsArchive") {
+    group = "build"
+    description = "Creates the CDS archive of the classes loaded by a representative CLI run"
+    dependsOn(tasks.jar)
+    val archive = layout.buildDirectory.file("cds/parso-tangue.jsa")
+    val jar = tasks.jar.flatMap { it.archiveFile }
+    inputs.file(jar)
+    outputs.file(archive)
+    doFirst {
+        archive.get().asFile.parentFile.mkdirs()
+    }
+    executable = javaToolchains.launcherFor(java.toolchain).get().executablePath.asFile.absolutePath
+    args("-XX:ArchiveClassesAtExit=${archive.get().asFile.absolutePath}", "-jar", jar.get().asFile.absolutePath,
+        "dump-ast", "--timing", "src/test/resources")
+    isIgnoreExitValue = true // the training set contains programs with syntax errors
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks, pass a benchmark filter with -Pjmh.includes=<regex>"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    jvmArgs(jvmFlags)
+    args(listOf(providers.gradleProperty("jmh.includes").getOrElse(".*"), "-jvmArgsAppend", jvmFlags.joinToString(" ")))
+}
@@ -0,0 +1,57 @@
+package lexer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Compares the scalar and the vectorized scanners on whitespace-heavy and string-heavy inputs
+// and the sequential lexer with the parallel one
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+    @Param({"whitespaces", "strings", "identifiers"})
+    public String input;
+
+    @Param({"false", "true"})
+    public boolean vectorized;
+
+    private String src;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2_000; i++) {
+            switch (input) {
+                case "whitespaces" -> sb.append("x").append(i % 10).append(" =")
+                        .append(" ".repeat(60)).append(i).append(";\n").append("\t".repeat(20)).append('\n');
+                case "strings" -> sb.append("print(\"").append("some long string literal ".repeat(8))
+                        .append("\\n\");\n");
+                default -> sb.append("very_long_variable_name_").append(i).append(" = another_long_identifier_name + ")
+                        .append(123456789).append(";\n");
+            }
+        }
+        src = sb.toString();
+    }
+
+    @Benchmark
+    public void lex(Blackhole blackhole) {
+        for (Token token : new Lexer(src, vectorized)) {
+            blackhole.consume(token);
+        }
+    }
+
+    @Benchmark
+    public void lexParallel(Blackhole blackhole) {
+        ParallelLexer lexer = new ParallelLexer(src, ForkJoinPool.commonPool().getParallelism(), 16 * 1024,
+                ForkJoinPool.commonPool(), vectorized);
+        for (Token token : lexer) {
+            blackhole.consume(token);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package lexer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Compares decoding UTF-8 input code to a String and lexing it with lexing the bytes
+// from an array and from a memory-mapped file (run with -prof gc to compare the heap allocation)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Utf8LexerBenchmark {
+    @Param({"ascii", "multibyte"})
+    public String input;
+
+    private byte[] bytes;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        String literal = "ascii".equals(input) ? "some string literal" : "строка éè";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5_000; i++) {
+            sb.append("int f").append(i).append("(a, b) {\n")
+                    .append("    x = a * (b + ").append(i).append(") - c;\n")
+                    .append("    print(a, \"").append(literal).append("\");\n")
+                    .append("    return x;\n}\n");
+        }
+        bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        file = Files.createTempFile("benchmark", ".pt");
+        Files.write(file, bytes);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public void decodeAndLex(Blackhole blackhole) {
+        for (Token token : new Lexer(new String(bytes, StandardCharsets.UTF_8))) {
+            blackhole.consume(token);
+        }
+    }
+
+    @Benchmark
+    public void lexBytes(Blackhole blackhole) {
+        for (Token token : new Utf8Lexer(bytes)) {
+            blackhole.consume(token);
+        }
+    }
+
+    @Benchmark
+    public void lexMappedFile(Blackhole blackhole) throws IOException {
+        for (Token token : Utf8Lexer.mapFile(file)) {
+            blackhole.consume(token);
+        }
+    }
+}
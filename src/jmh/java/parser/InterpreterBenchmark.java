@@ -0,0 +1,69 @@
+package parser;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+// Compares the AST-walking interpreter (without memoization) with the closure-compiled one
+// on an arithmetic-heavy program and on a call-heavy one
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterpreterBenchmark {
+    @Param({"arithmetic", "calls"})
+    public String workload;
+
+    private Program program;
+    private final PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+
+    @Setup
+    public void setUp() {
+        String src = switch (workload) {
+            case "arithmetic" -> arithmeticProgram();
+            case "calls" -> """
+                    int fib(n) {
+                        if (n < 2) {
+                            return n;
+                        }
+                        a = fib(n - 1);
+                        b = fib(n - 2);
+                        return a + b;
+                    }
+                    x = fib(22);
+                    """;
+            default -> throw new IllegalArgumentException(workload);
+        };
+        program = Parser.fromSource(src, false).parse();
+    }
+
+    // A long straight-line arithmetic body run 1000 times through recursion 200 calls deep
+    private static String arithmeticProgram() {
+        StringBuilder sb = new StringBuilder("int step(n, x) {\n    if (n < 1) {\n        return x;\n    }\n");
+        for (int i = 0; i < 50; i++) {
+            sb.append("    x = (x * 31 + n * ").append(i + 1).append(" - ").append(i).append(") % 1000003;\n");
+            sb.append("    y").append(i % 5).append(" = x / 7 + (x % 13) * 2 - n;\n");
+        }
+        sb.append("    r = step(n - 1, x);\n    return r;\n}\nx = 1;\n");
+        sb.append("x = step(200, x);\n".repeat(5));
+        return sb.toString();
+    }
+
+    @Benchmark
+    public Object interpret() {
+        Interpreter interpreter = new Interpreter(out, 0);
+        interpreter.run(program);
+        return interpreter.getGlobal("x");
+    }
+
+    @Benchmark
+    public Object closures() {
+        ClosureInterpreter interpreter = new ClosureInterpreter(out);
+        interpreter.run(program);
+        return interpreter.getGlobal("x");
+    }
+}
@@ -0,0 +1,69 @@
+package parser;
+
+import lexer.PipelinedLexer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+// Compares lexing and parsing on one thread with the pipelined lexer on a producer thread
+// with the off-heap storage of tokens and AST and with the recognizer that builds no AST
+// (run with -prof gc to compare the heap allocation), and the text dump of the AST with the JSON export
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    private String src;
+    private Program program;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5_000; i++) {
+            sb.append("int f").append(i).append("(a, b) {\n")
+                    .append("    x = a * (b + ").append(i).append(") - c;\n").append("    print(a, \"some string literal\");\n")
+                    .append("    if (x >= 10) {\n        print(\"big\");\n    } else {\n        x = x + 1;\n    }\n")
+                    .append("    return x;\n}\n");
+        }
+        src = sb.toString();
+        program = parse();
+    }
+
+    @Benchmark
+    public Program parse() {
+        return Parser.fromSource(src, false).parse();
+    }
+
+    @Benchmark
+    public Program parsePipelined() {
+        try (PipelinedLexer lexer = new PipelinedLexer(src)) {
+            return Parser.fromTokens(lexer, false, ParseLimits.UNLIMITED, new CancellationToken()).parse();
+        }
+    }
+
+    @Benchmark
+    public long parseOffHeap() {
+        try (OffHeapProgram program = OffHeapProgram.parse(src, false)) {
+            return program.nodeCount();
+        }
+    }
+
+    @Benchmark
+    public boolean recognize() {
+        return Recognizer.recognize(src).isValid();
+    }
+
+    @Benchmark
+    public String dumpText() {
+        return program.toString(0);
+    }
+
+    @Benchmark
+    public void writeJson() throws IOException {
+        AstJson.write(program, null, OutputStream.nullOutputStream());
+    }
+}
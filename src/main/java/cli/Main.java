@@ -0,0 +1,284 @@
+package cli;
+
+import lexer.Lexer;
+import lexer.PipelinedLexer;
+import parser.AstFootprint;
+import parser.CancellationToken;
+import parser.ParseLimits;
+import parser.Parser;
+import parser.Program;
+import parser.Recognizer;
+import utils.FileUtils;
+import watch.ProgramWatcher;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+// Command-line front end of the parser.
+// Usage: parso-tangue <parse|check|dump-ast|footprint|watch> [--lazy] [--pipelined] [--no-ast] [--timing] [--files-from <file|->] [<file|directory|->...]
+//   parse    -- parses the inputs and prints "<input>: ok" or the error for every input
+//   check    -- prints only errors
+//   dump-ast -- prints the AST of every input
+//   footprint -- prints the estimated heap footprint of the AST of every input per node type
+//   watch    -- reparses the changed files of the directory until the process is stopped
+// --no-ast checks parse and check inputs without building the AST, errors are reported as positions.
+// Directories are walked for .pt files, "-" is stdin. Exit code: 0 -- ok, 1 -- syntax errors, 2 -- usage or I/O errors.
+public class Main {
+    private static final String STDIN = "-";
+    private static final String EXTENSION = ".pt";
+    private static final long WATCH_DEBOUNCE_MILLIS = 100;
+    private static final ParseLimits LIMITS = ParseLimits.UNLIMITED; // the inputs are the user's own files
+
+    private final PrintStream out;
+    private final PrintStream err;
+    private String command;
+    private boolean lazy = false;
+    private boolean pipelined = false; // lex on a separate thread
+    private boolean noAst = false; // validate with Recognizer
+    private boolean timing = false;
+    private final List<String> inputs = new ArrayList<>();
+
+    // Time spent in every phase, ns
+    private long readTime = 0;
+    private long parseTime = 0;
+    private long printTime = 0;
+
+    Main(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    public static void main(String[] args) {
+        long startupMillis = ManagementFactory.getRuntimeMXBean().getUptime(); // JVM start up to main
+        int exitCode = new Main(System.out, System.err).run(args, startupMillis);
+        System.exit(exitCode);
+    }
+
+    int run(String[] args, long startupMillis) {
+        long start = System.nanoTime();
+        try {
+            parseArgs(args);
+        } catch (IllegalArgumentException | IOException e) {
+            err.println("error: " + e.getMessage());
+            err.println("usage: parso-tangue <parse|check|dump-ast|footprint|watch> [--lazy] [--pipelined] [--no-ast] [--timing] [--files-from <file|->] [<file|directory|->...]");
+            return 2;
+        }
+        if ("watch".equals(command)) {
+            return watch();
+        }
+
+        int exitCode = 0;
+        int files = 0;
+        for (String input : inputs) {
+            List<String> paths;
+            try {
+                paths = expand(input);
+            } catch (IOException e) {
+                err.println(input + ": error: " + e.getMessage());
+                exitCode = 2;
+                continue;
+            }
+            for (String path : paths) {
+                files++;
+                exitCode = Math.max(exitCode, process(path));
+            }
+        }
+
+        if (timing) {
+            err.printf("timing: startup %d ms, read %.3f ms, parse %.3f ms, print %.3f ms, total %.3f ms, files %d%n",
+                    startupMillis, readTime / 1e6, parseTime / 1e6, printTime / 1e6,
+                    (System.nanoTime() - start) / 1e6, files);
+        }
+        return exitCode;
+    }
+
+    private void parseArgs(String[] args) throws IOException {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--lazy" -> lazy = true;
+                case "--pipelined" -> pipelined = true;
+                case "--no-ast" -> noAst = true;
+                case "--timing" -> timing = true;
+                case "--files-from" -> {
+                    if (++i >= args.length) {
+                        throw new IllegalArgumentException("--files-from expects a file");
+                    }
+                    // batch mode: one input per line
+                    String list = STDIN.equals(args[i]) ? FileUtils.readStreamToString(System.in) : Files.readString(Path.of(args[i]));
+                    list.lines().map(String::strip).filter(line -> !line.isEmpty()).forEach(inputs::add);
+                }
+                default -> {
+                    if (command == null) {
+                        command = args[i];
+                    } else {
+                        inputs.add(args[i]);
+                    }
+                }
+            }
+        }
+        if (command == null) {
+            throw new IllegalArgumentException("no command");
+        }
+        if (!List.of("parse", "check", "dump-ast", "footprint", "watch").contains(command)) {
+            throw new IllegalArgumentException("unknown command " + command);
+        }
+        if (noAst && !List.of("parse", "check").contains(command)) {
+            throw new IllegalArgumentException("--no-ast works only with parse and check");
+        }
+        if (inputs.isEmpty()) {
+            inputs.add(STDIN);
+        }
+    }
+
+    private int watch() {
+        if (inputs.size() != 1 || !Files.isDirectory(Path.of(inputs.get(0)))) {
+            err.println("error: watch expects one directory");
+            return 2;
+        }
+        ProgramWatcher.Listener listener = new ProgramWatcher.Listener() {
+            @Override
+            public void onParsed(ProgramWatcher.Result result) {
+                String latency = timing ? String.format(" (%.3f ms)", result.latencyNanos() / 1e6) : "";
+                if (result.error() == null) {
+                    out.println(result.file() + ": ok" + latency);
+                } else {
+                    err.println(result.file() + ": error: " + result.error() + latency);
+                }
+            }
+
+            @Override
+            public void onRemoved(Path file) {
+                out.println(file + ": removed");
+            }
+        };
+        try (ProgramWatcher watcher = new ProgramWatcher(Path.of(inputs.get(0)), WATCH_DEBOUNCE_MILLIS, listener)) {
+            watcher.start();
+            new CountDownLatch(1).await(); // until the process is stopped
+        } catch (IOException e) {
+            err.println("error: " + e.getMessage());
+            return 2;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    private static List<String> expand(String input) throws IOException {
+        Path path = Path.of(input);
+        if (STDIN.equals(input) || !Files.isDirectory(path)) {
+            return List.of(input);
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            return files.filter(file -> Files.isRegularFile(file) && file.toString().endsWith(EXTENSION))
+                    .map(Path::toString)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private int process(String path) {
+        long phaseStart = System.nanoTime();
+        String src;
+        try {
+            src = STDIN.equals(path) ? FileUtils.readStreamToString(System.in) : FileUtils.readFileToString(path);
+        } catch (IOException e) {
+            err.println(path + ": error: cannot read: " + e.getMessage()); // e.g. "<path> (Permission denied)"
+            return 2;
+        } finally {
+            readTime += System.nanoTime() - phaseStart;
+        }
+
+        if (noAst) {
+            return recognize(path, src);
+        }
+
+        phaseStart = System.nanoTime();
+        Parser parser;
+        Program program;
+        try {
+            if (pipelined) {
+                Parser.checkSourceSize(src, LIMITS); // before the lexer thread is started
+                try (PipelinedLexer lexer = new PipelinedLexer(src)) {
+                    parser = Parser.fromTokens(lexer, lazy, LIMITS, new CancellationToken());
+                    program = parser.parse();
+                }
+            } else {
+                parser = Parser.fromSource(src, lazy, LIMITS, new CancellationToken());
+                program = parser.parse();
+            }
+        } catch (RuntimeException e) {
+            err.println(path + ": error: " + message(e));
+            return 1;
+        } finally {
+            parseTime += System.nanoTime() - phaseStart;
+        }
+
+        phaseStart = System.nanoTime();
+        try {
+            switch (command) {
+                case "parse" -> out.println(path + ": ok");
+                case "dump-ast" -> {
+                    out.println("== " + path + " ==");
+                    out.print(parser); // lazy function bodies are parsed here
+                }
+                case "footprint" -> printFootprint(path, src, program);
+                default -> {
+                }
+            }
+        } catch (RuntimeException e) {
+            err.println(path + ": error: " + message(e));
+            return 1;
+        } finally {
+            printTime += System.nanoTime() - phaseStart;
+        }
+        return 0;
+    }
+
+    private int recognize(String path, String src) {
+        long phaseStart = System.nanoTime();
+        Recognizer.Result result;
+        try {
+            if (pipelined) {
+                Parser.checkSourceSize(src, LIMITS);
+                try (PipelinedLexer lexer = new PipelinedLexer(src)) {
+                    result = Recognizer.recognize(lexer, LIMITS, new CancellationToken());
+                }
+            } else {
+                result = Recognizer.recognize(src, LIMITS, new CancellationToken());
+            }
+        } finally {
+            parseTime += System.nanoTime() - phaseStart;
+        }
+        if (!result.isValid()) {
+            err.println(path + ": error: " + result.status() + " at Pos(line=" + result.line() + ", col=" + result.col() + ")");
+            return 1;
+        }
+        if ("parse".equals(command)) {
+            out.println(path + ": ok");
+        }
+        return 0;
+    }
+
+    // Unparsed lazy function bodies are counted as their tokens
+    private void printFootprint(String path, String src, Program program) {
+        AstFootprint.Report report = AstFootprint.measure(program);
+        out.println("== " + path + " ==");
+        report.byType().forEach((type, footprint) ->
+                out.printf("%-16s %8d %10d%n", type, footprint.count(), footprint.bytes()));
+        out.printf("%-16s %8d %10d (%.2f bytes per source byte)%n", "total", report.nodes(), report.bytes(),
+                report.bytesPerSourceByte(src.getBytes(StandardCharsets.UTF_8).length));
+    }
+
+    // Lexer errors come wrapped by the token iterator
+    private static String message(RuntimeException e) {
+        return e.getCause() instanceof Lexer.LexerException ? e.getCause().getMessage() : e.getMessage();
+    }
+}
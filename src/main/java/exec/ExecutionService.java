@@ -0,0 +1,146 @@
+package exec;
+
+import lexer.Lexer;
+import parser.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs many small programs concurrently, every execution on its own virtual thread.
+// An execution has its own Interpreter with isolated globals and output, limited by the ExecutionBudget.
+// At most maxConcurrent executions run at once, the others wait for a permit; the wait is the queueing latency.
+// Parsed programs are shared between executions through a bounded LRU cache keyed by the source code,
+// a source is parsed by one execution while the others with the same source wait for it.
+public class ExecutionService implements AutoCloseable {
+    public static final int DEFAULT_MEMO_CAPACITY = 256;
+
+    // error is null if the program completed; output is what it printed before completing or failing
+    public record Result(String output, String error, long queueNanos, long runNanos, long steps, long memoryBytes) {
+        public boolean isOk() {
+            return error == null;
+        }
+    }
+
+    public record Metrics(long submitted, long completed, long failed, long budgetExceeded, long cacheHits, long cacheMisses,
+                          long averageQueueNanos, long maxQueueNanos, double executionsPerSecond) {
+    }
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final ExecutionBudget budget;
+    private final Map<String, CompletableFuture<Program>> programs; // LRU cache of parsed programs, guarded by itself
+    private final long startNanos = System.nanoTime();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong budgetExceeded = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong totalQueueNanos = new AtomicLong();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+
+    public ExecutionService(int maxConcurrent, ExecutionBudget budget, int programCacheSize) {
+        this.permits = new Semaphore(maxConcurrent);
+        this.budget = budget;
+        this.programs = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<Program>> eldest) {
+                return size() > programCacheSize;
+            }
+        };
+    }
+
+    public CompletableFuture<Result> submit(String src) {
+        return submit(src, budget);
+    }
+
+    public CompletableFuture<Result> submit(String src, ExecutionBudget budget) {
+        submitted.incrementAndGet();
+        long submitNanos = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                long queueNanos = System.nanoTime() - submitNanos;
+                totalQueueNanos.addAndGet(queueNanos);
+                maxQueueNanos.accumulateAndGet(queueNanos, Math::max);
+                return execute(src, budget, queueNanos);
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    public Metrics metrics() {
+        long done = completed.get() + failed.get();
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return new Metrics(submitted.get(), completed.get(), failed.get(), budgetExceeded.get(), cacheHits.get(),
+                cacheMisses.get(), done == 0 ? 0 : totalQueueNanos.get() / done, maxQueueNanos.get(), done / seconds);
+    }
+
+    // Waits for the submitted executions
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private Result execute(String src, ExecutionBudget budget, long queueNanos) {
+        long start = System.nanoTime();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Interpreter interpreter = new Interpreter(new PrintStream(output, true, StandardCharsets.UTF_8),
+                DEFAULT_MEMO_CAPACITY, budget);
+        String error = null;
+        try {
+            interpreter.run(program(src));
+        } catch (Interpreter.BudgetExceededException e) {
+            budgetExceeded.incrementAndGet();
+            error = e.getMessage();
+        } catch (RuntimeException e) {
+            error = e.getCause() instanceof Lexer.LexerException ? e.getCause().getMessage() : e.getMessage();
+        } catch (StackOverflowError e) {
+            error = "Stack overflow"; // the call depth of the budget is too large for the thread's stack
+        }
+        (error == null ? completed : failed).incrementAndGet();
+        return new Result(output.toString(StandardCharsets.UTF_8), error, queueNanos, System.nanoTime() - start,
+                interpreter.steps(), interpreter.memoryBytes());
+    }
+
+    // The cached program or a new parse, programs with errors are not cached.
+    // Executions that find a parse in progress wait for it and get its program or its error
+    private Program program(String src) {
+        CompletableFuture<Program> parse = new CompletableFuture<>();
+        CompletableFuture<Program> cached;
+        synchronized (programs) {
+            cached = programs.putIfAbsent(src, parse);
+        }
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            try {
+                return cached.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        cacheMisses.incrementAndGet();
+        try {
+            Program program = Parser.fromSource(src, false, ParseLimits.UNTRUSTED, new CancellationToken()).parse();
+            parse.complete(program);
+            return program;
+        } catch (RuntimeException | Error e) {
+            synchronized (programs) {
+                programs.remove(src, parse);
+            }
+            parse.completeExceptionally(e);
+            throw e;
+        }
+    }
+}
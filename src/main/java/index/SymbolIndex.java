@@ -0,0 +1,320 @@
+package index;
+
+import parser.SymbolOccurrences;
+import parser.SymbolOccurrences.Kind;
+import parser.SymbolOccurrences.Occurrence;
+import utils.FileUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.stream.Stream;
+
+// Persistent inverted index from function and variable names to their occurrences in .pt files.
+// The index file is memory-mapped, a lookup is a binary search over the sorted symbol table without parsing.
+// An update reparses only the files whose size or modification time changed and writes a new index file,
+// copying the postings of the unchanged files from the old one.
+//
+// File format (big-endian):
+//   header: magic, version, file count, symbol count, offset of the postings, offset of the strings (longs)
+//   files: path, size (long), modification time (long)
+//   symbols sorted by name: name, first posting (long), posting count
+//   postings grouped by symbol and sorted by file and position: file id, kind, line, col
+//   strings: UTF-8, a string field is the offset and the length of the string in this section
+public class SymbolIndex {
+    private static final String EXTENSION = ".pt";
+    private static final int MAGIC = 0x50544958; // "PTIX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int FILE_BYTES = 24;
+    private static final int SYMBOL_BYTES = 20;
+    private static final int POSTING_BYTES = 16;
+    private static final Kind[] KINDS = Kind.values();
+    private static final Comparator<int[]> POSTING_ORDER = Comparator.<int[]>comparingInt(p -> p[0])
+            .thenComparingInt(p -> p[2]).thenComparingInt(p -> p[3]).thenComparingInt(p -> p[1]);
+
+    // line and col are 0 if the position is unknown
+    public record Posting(Path file, Kind kind, int line, int col) {
+    }
+
+    public record Update(int parsed, int unchanged, int removed) {
+    }
+
+    private final Path indexFile;
+    private volatile Snapshot snapshot;
+
+    private SymbolIndex(Path indexFile, Snapshot snapshot) {
+        this.indexFile = indexFile;
+        this.snapshot = snapshot;
+    }
+
+    // Opens the index file or an empty index if the file doesn't exist yet
+    public static SymbolIndex open(Path indexFile) throws IOException {
+        return new SymbolIndex(indexFile, Files.exists(indexFile) ? Snapshot.map(indexFile) : Snapshot.EMPTY);
+    }
+
+    public List<Posting> find(String symbol) {
+        Snapshot index = snapshot;
+        int symbolId = index.search(symbol);
+        if (symbolId < 0) {
+            return List.of();
+        }
+        long first = index.firstPosting(symbolId);
+        int count = index.postingCount(symbolId);
+        List<Posting> postings = new ArrayList<>(count);
+        for (long i = first; i < first + count; i++) {
+            int posting = index.posting(i);
+            postings.add(new Posting(Path.of(index.path(index.buffer.getInt(posting))), KINDS[index.buffer.getInt(posting + 4)],
+                    index.buffer.getInt(posting + 8), index.buffer.getInt(posting + 12)));
+        }
+        return postings;
+    }
+
+    public List<Posting> find(String symbol, Kind kind) {
+        return find(symbol).stream().filter(posting -> posting.kind() == kind).toList();
+    }
+
+    public List<Path> files() {
+        Snapshot index = snapshot;
+        List<Path> files = new ArrayList<>(index.fileCount());
+        for (int i = 0; i < index.fileCount(); i++) {
+            files.add(Path.of(index.path(i)));
+        }
+        return files;
+    }
+
+    public int symbolCount() {
+        return snapshot.symbolCount();
+    }
+
+    // Indexes all .pt files of the directory tree, files missing in the tree are removed from the index
+    public Update updateTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return update(paths.filter(path -> Files.isRegularFile(path) && path.toString().endsWith(EXTENSION)).toList());
+        }
+    }
+
+    // Makes the index cover exactly the given files, a file with a syntax error is kept without postings
+    public synchronized Update update(Collection<Path> sources) throws IOException {
+        Snapshot old = snapshot;
+        Map<String, Integer> oldIds = new HashMap<>();
+        for (int i = 0; i < old.fileCount(); i++) {
+            oldIds.put(old.path(i), i);
+        }
+        List<String> paths = sources.stream().map(path -> path.toAbsolutePath().normalize().toString())
+                .distinct().sorted().toList();
+        long[] sizes = new long[paths.size()];
+        long[] modified = new long[paths.size()];
+        int[] newIdOfOld = new int[old.fileCount()];
+        Arrays.fill(newIdOfOld, -1);
+        List<Integer> changed = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++) {
+            BasicFileAttributes attributes = Files.readAttributes(Path.of(paths.get(i)), BasicFileAttributes.class);
+            sizes[i] = attributes.size();
+            modified[i] = attributes.lastModifiedTime().toMillis();
+            Integer oldId = oldIds.remove(paths.get(i));
+            if (oldId != null && old.size(oldId) == sizes[i] && old.modified(oldId) == modified[i]) {
+                newIdOfOld[oldId] = i;
+            } else {
+                changed.add(i);
+            }
+        }
+
+        // Postings of the changed files: symbol -> {file id, kind, line, col}
+        List<List<Occurrence>> occurrences = changed.parallelStream().map(i -> occurrences(paths.get(i))).toList();
+        TreeMap<String, List<int[]>> newPostings = new TreeMap<>();
+        for (int i = 0; i < changed.size(); i++) {
+            for (Occurrence occurrence : occurrences.get(i)) {
+                int line = occurrence.pos() != null ? occurrence.pos().line() : 0;
+                int col = occurrence.pos() != null ? occurrence.pos().col() : 0;
+                newPostings.computeIfAbsent(occurrence.symbol(), symbol -> new ArrayList<>())
+                        .add(new int[]{changed.get(i), occurrence.kind().ordinal(), line, col});
+            }
+        }
+
+        Path tmp = Files.createTempFile(indexFile.toAbsolutePath().getParent(), indexFile.getFileName().toString(), ".tmp");
+        try {
+            write(tmp, paths, sizes, modified, old, newIdOfOld, newPostings);
+            Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        snapshot = Snapshot.map(indexFile);
+        return new Update(changed.size(), paths.size() - changed.size(), oldIds.size());
+    }
+
+    private static List<Occurrence> occurrences(String path) {
+        try {
+            return SymbolOccurrences.collect(FileUtils.readFileToString(path));
+        } catch (IOException | RuntimeException e) {
+            return List.of(); // the file is parsed again when it changes
+        }
+    }
+
+    // Merges the postings of the old index whose files are kept with the postings of the parsed files
+    private static void write(Path file, List<String> paths, long[] sizes, long[] modified, Snapshot old,
+                              int[] newIdOfOld, TreeMap<String, List<int[]>> newPostings) throws IOException {
+        ByteArrayOutputStream symbolBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream postingBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+        DataOutputStream symbols = new DataOutputStream(symbolBytes);
+        DataOutputStream postings = new DataOutputStream(postingBytes);
+        int symbolCount = 0;
+        long postingCount = 0;
+
+        int oldSymbol = 0;
+        Iterator<Map.Entry<String, List<int[]>>> newSymbols = newPostings.entrySet().iterator();
+        Map.Entry<String, List<int[]>> newSymbol = newSymbols.hasNext() ? newSymbols.next() : null;
+        while (oldSymbol < old.symbolCount() || newSymbol != null) {
+            String oldName = oldSymbol < old.symbolCount() ? old.symbol(oldSymbol) : null;
+            int order = oldName == null ? 1 : newSymbol == null ? -1 : oldName.compareTo(newSymbol.getKey());
+            String name = order <= 0 ? oldName : newSymbol.getKey();
+            List<int[]> merged = new ArrayList<>();
+            if (order <= 0) {
+                long first = old.firstPosting(oldSymbol);
+                for (long i = first; i < first + old.postingCount(oldSymbol); i++) {
+                    int posting = old.posting(i);
+                    int fileId = newIdOfOld[old.buffer.getInt(posting)];
+                    if (fileId >= 0) {
+                        merged.add(new int[]{fileId, old.buffer.getInt(posting + 4), old.buffer.getInt(posting + 8),
+                                old.buffer.getInt(posting + 12)});
+                    }
+                }
+                oldSymbol++;
+            }
+            if (order >= 0) {
+                merged.addAll(newSymbol.getValue());
+                newSymbol = newSymbols.hasNext() ? newSymbols.next() : null;
+            }
+            if (merged.isEmpty()) {
+                continue; // the symbol occurred only in removed or changed files
+            }
+            merged.sort(POSTING_ORDER);
+            writeString(symbols, stringBytes, name);
+            symbols.writeLong(postingCount);
+            symbols.writeInt(merged.size());
+            for (int[] posting : merged) {
+                for (int field : posting) {
+                    postings.writeInt(field);
+                }
+            }
+            symbolCount++;
+            postingCount += merged.size();
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            long postingsOffset = HEADER_BYTES + (long) paths.size() * FILE_BYTES + symbolBytes.size();
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(paths.size());
+            out.writeInt(symbolCount);
+            out.writeLong(postingsOffset);
+            out.writeLong(postingsOffset + postingBytes.size());
+            for (int i = 0; i < paths.size(); i++) {
+                writeString(out, stringBytes, paths.get(i));
+                out.writeLong(sizes[i]);
+                out.writeLong(modified[i]);
+            }
+            symbolBytes.writeTo(out);
+            postingBytes.writeTo(out);
+            stringBytes.writeTo(out);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, ByteArrayOutputStream strings, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(strings.size());
+        out.writeInt(bytes.length);
+        strings.write(bytes);
+    }
+
+    // Read-only view of an index file, accessed with absolute gets only to be safe for concurrent lookups
+    private record Snapshot(ByteBuffer buffer) {
+        static final Snapshot EMPTY = new Snapshot(ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC).putInt(VERSION).putInt(0).putInt(0).putLong(HEADER_BYTES).putLong(HEADER_BYTES));
+
+        static Snapshot map(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                    throw new IOException("Not a symbol index: " + file);
+                }
+                return new Snapshot(buffer);
+            }
+        }
+
+        int fileCount() {
+            return buffer.getInt(8);
+        }
+
+        int symbolCount() {
+            return buffer.getInt(12);
+        }
+
+        private int fileEntry(int file) {
+            return HEADER_BYTES + file * FILE_BYTES;
+        }
+
+        String path(int file) {
+            return string(fileEntry(file));
+        }
+
+        long size(int file) {
+            return buffer.getLong(fileEntry(file) + 8);
+        }
+
+        long modified(int file) {
+            return buffer.getLong(fileEntry(file) + 16);
+        }
+
+        private int symbolEntry(int symbol) {
+            return HEADER_BYTES + fileCount() * FILE_BYTES + symbol * SYMBOL_BYTES;
+        }
+
+        String symbol(int symbol) {
+            return string(symbolEntry(symbol));
+        }
+
+        long firstPosting(int symbol) {
+            return buffer.getLong(symbolEntry(symbol) + 8);
+        }
+
+        int postingCount(int symbol) {
+            return buffer.getInt(symbolEntry(symbol) + 16);
+        }
+
+        // Offset of the posting in the buffer
+        int posting(long posting) {
+            return Math.toIntExact(buffer.getLong(16) + posting * POSTING_BYTES);
+        }
+
+        // Binary search over the sorted symbol table, -1 if the symbol isn't indexed
+        int search(String symbol) {
+            int low = 0;
+            int high = symbolCount() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int order = symbol(mid).compareTo(symbol);
+                if (order < 0) {
+                    low = mid + 1;
+                } else if (order > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        // String field at the offset: offset and length in the string section
+        private String string(int field) {
+            byte[] bytes = new byte[buffer.getInt(field + 4)];
+            buffer.get(Math.toIntExact(buffer.getLong(24) + buffer.getInt(field)), bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package lexer;
+
+// Scans runs of characters of the same class in the input code
+interface CharScanner {
+    // Index of the first non-whitespace character at or after from
+    int whitespaceEnd(int from);
+
+    // Index of the first character at or after from that can't continue an identifier
+    int identifierEnd(int from);
+
+    // Index of the first non-digit character at or after from
+    int digitsEnd(int from);
+
+    // Index of the next '"' or '\' at or after from, or the length of the input code
+    int nextQuoteOrBackslash(int from);
+
+    // Number of '\n' characters in [from, to)
+    int countNewlines(int from, int to);
+
+    static CharScanner create(String src, boolean vectorized) {
+        if (vectorized && isVectorApiPresent()) {
+            return new VectorCharScanner(src);
+        }
+        return new ScalarCharScanner(src);
+    }
+
+    // The incubator module has to be added with --add-modules jdk.incubator.vector. It's checked here since
+    // loading VectorCharScanner without the module fails with NoClassDefFoundError
+    static boolean isVectorApiPresent() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    static boolean isIdentifierChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '$';
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -3,16 +3,33 @@ package lexer;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 
 public class Lexer implements Iterable<Token> {
 
+    private static final List<String> KEYWORDS = List.of("int", "void", "if", "else", "return");
+
     private final String src; // input code
+    private final CharScanner scanner; // finds the ends of whitespace, identifier, digit and string runs
+    private final int limit; // tokens are read only if they start before the limit
 
     public Lexer(String src) {
+        this(src, false);
+    }
+
+    // vectorized -- scan with the Vector API when jdk.incubator.vector is available
+    public Lexer(String src, boolean vectorized) {
+        this(src, CharScanner.create(src, vectorized), 0, src.length(), 1, 1);
+    }
+
+    // Lexer of the chunk [from, limit) of input code starting with the given position (used by ParallelLexer)
+    Lexer(String src, CharScanner scanner, int from, int limit, int line, int col) {
         this.src = src;
+        this.scanner = scanner;
+        this.limit = limit;
+        this.curIndex = from;
+        this.line = line;
+        this.col = col;
     }
 
     public record Pos(int line, int col) {
@@ -61,9 +78,9 @@ public class Lexer implements Iterable<Token> {
         };
     }
 
-    private Token createRegexToken(TokenType tokenType, Matcher matchResult) {
-        String tokenValue = matchResult.group();
-        curIndex += tokenValue.length();
+    private Token createRunToken(TokenType tokenType, int end) {
+        String tokenValue = src.substring(curIndex, end);
+        curIndex = end;
         Token token = new TokenImpl(tokenType, tokenValue, new Pos(line, col));
         col += tokenValue.length();
         return token;
@@ -78,13 +95,31 @@ public class Lexer implements Iterable<Token> {
     }
 
     private void processWhitespaces() {
-        if (src.charAt(curIndex) == '\n') {
-            line++;
-            col = 1;
+        int end = Math.min(scanner.whitespaceEnd(curIndex), limit);
+        int newlines = scanner.countNewlines(curIndex, end);
+        if (newlines > 0) {
+            line += newlines;
+            col = end - src.lastIndexOf('\n', end - 1); // the last '\n' is inside the run
         } else {
-            col++;
+            col += end - curIndex;
         }
-        curIndex++;
+        curIndex = end;
+    }
+
+    // Keyword at the current position not followed by a word character, or null
+    private String matchKeyword(int identifierEnd) {
+        for (String keyword : KEYWORDS) {
+            int end = curIndex + keyword.length();
+            if (end <= identifierEnd && src.startsWith(keyword, curIndex)
+                    && (end == src.length() || !isWordChar(src.charAt(end)))) {
+                return keyword;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isWordChar(char c) {
+        return CharScanner.isIdentifierChar(c) && c != '$';
     }
 
     private Token processStringLiteral() throws LexerException {
@@ -104,7 +139,7 @@ public class Lexer implements Iterable<Token> {
                 curIndex++;
                 col++;
                 if (curIndex >= src.length()) {
-                    throw new LexerException("Unterminated escape sequence at Pos(line=" + line + ", col=" + col + ")");
+                    throw new LexerException("Unterminated escape sequence", new Pos(line, col));
                 }
                 switch (src.charAt(curIndex)) {
                     case '\\':
@@ -129,20 +164,22 @@ public class Lexer implements Iterable<Token> {
                         curToken.append('$');
                         break;
                     default:
-                        throw new LexerException("Incorrect escaped symbol: \\" + src.charAt(curIndex) + " at Pos(line=" + line + ", col=" + col + ")");
+                        throw new LexerException("Incorrect escaped symbol: \\" + src.charAt(curIndex), new Pos(line, col));
                 }
                 curIndex++;
                 col++;
             } else {
-                curToken.append(src.charAt(curIndex));
-                curIndex++;
-                col++;
+                // Copy the run of ordinary characters up to the next '"' or '\\'
+                int end = scanner.nextQuoteOrBackslash(curIndex);
+                curToken.append(src, curIndex, end);
+                col += end - curIndex;
+                curIndex = end;
             }
         }
 
         // Checking that the string ends with closing quotation mark
         if (curToken.charAt(curToken.length() - 1) != '"') {
-            throw new LexerException("Unterminated string literal at Pos(line=" + line + ", col=" + col + ")");
+            throw new LexerException("Unterminated string literal", new Pos(line, col));
         }
 
         return new TokenImpl(TokenType.STRING, curToken.toString(), new Pos(line, col - curToken.length()));
@@ -152,37 +189,35 @@ public class Lexer implements Iterable<Token> {
         List<Character> arithmeticOperations = Arrays.asList('+', '-', '*', '/', '%');
         List<Character> specialsSymbols = Arrays.asList(',', '{', '}', ';', '(', ')', ';');
 
-        if (curIndex >= src.length()) {
+        if (curIndex >= limit) {
             if (!isEOF) {
                 isEOF = true;
             }
             return null;
         }
 
-        while (curIndex < src.length()) {
-            // Regular expression for keyword search: int, void, if, else, return
-            Pattern keyWords = Pattern.compile("\\b(int|void|if|else|return)\\b");
-            Matcher keyWordsMatcher = keyWords.matcher(src).region(curIndex, src.length());
-            if (keyWordsMatcher.lookingAt()) {
-                return createRegexToken(TokenType.KEYWORD, keyWordsMatcher);
-            }
+        while (curIndex < limit) {
+            char curChar = src.charAt(curIndex);
 
+            // Keywords: int, void, if, else, return
             // Identifiers - names of functions, names of variables
-            Pattern identifiers = Pattern.compile("[$_a-zA-Z][$_a-zA-Z0-9]*");
-            Matcher identifiersMatcher = identifiers.matcher(src).region(curIndex, src.length());
-            if (identifiersMatcher.lookingAt()) {
-                return createRegexToken(TokenType.IDENTIFIER, identifiersMatcher);
+            if (curChar == '$' || curChar == '_' || (curChar >= 'a' && curChar <= 'z') || (curChar >= 'A' && curChar <= 'Z')) {
+                int end = scanner.identifierEnd(curIndex + 1);
+                String keyword = matchKeyword(end);
+                if (keyword != null) {
+                    return createRunToken(TokenType.KEYWORD, curIndex + keyword.length());
+                }
+                return createRunToken(TokenType.IDENTIFIER, end);
             }
 
             // Integers
-            Pattern integers = Pattern.compile("-?\\d+");
-            Matcher integersMatcher = integers.matcher(src).region(curIndex, src.length());
-            if (integersMatcher.lookingAt()) {
-                return createRegexToken(TokenType.INT, integersMatcher);
+            int digitsStart = curChar == '-' ? curIndex + 1 : curIndex;
+            if (digitsStart < src.length() && CharScanner.isDigit(src.charAt(digitsStart))) {
+                return createRunToken(TokenType.INT, scanner.digitsEnd(digitsStart));
             }
 
             // Whitespace characters -- skip  to divide into tokens
-            if (Character.isWhitespace(src.charAt(curIndex))) {
+            if (Character.isWhitespace(curChar)) {
                 processWhitespaces();
                 continue;
             }
@@ -211,7 +246,7 @@ public class Lexer implements Iterable<Token> {
                     curIndex++;
                     return new TokenImpl(TokenType.COMPARISON, "!=", new Pos(line, col - 2));
                 } else {
-                    throw new LexerException("Unknown character '!' at Pos(line=" + line + ", col=" + col + ")");
+                    throw new LexerException("Unknown character '!'", new Pos(line, col));
                 }
             }
 
@@ -247,15 +282,40 @@ public class Lexer implements Iterable<Token> {
                 return createSingleCharToken(TokenType.OPERATION, src.charAt(curIndex));
             }
 
-            throw new LexerException("Incorrect token at Pos(line=" + line + ", col=" + col + ")");
+            throw new LexerException("Incorrect token", new Pos(line, col));
         }
 
         return null;
     }
 
+    // Reads the next token without wrapping errors, null at the limit
+    Token nextToken() throws LexerException {
+        return getNextToken();
+    }
+
+    int curIndex() {
+        return curIndex;
+    }
+
+    Pos curPos() {
+        return new Pos(line, col);
+    }
+
     public static class LexerException extends RuntimeException {
+        private final Pos pos; // null if unknown
+
         public LexerException(String message) {
             super(message);
+            this.pos = null;
+        }
+
+        public LexerException(String message, Pos pos) {
+            super(message + " at Pos(line=" + pos.line() + ", col=" + pos.col() + ")");
+            this.pos = pos;
+        }
+
+        public Pos getPos() {
+            return pos;
         }
     }
 }
\ No newline at end of file
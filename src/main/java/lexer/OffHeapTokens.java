@@ -0,0 +1,87 @@
+package lexer;
+
+import org.jetbrains.annotations.NotNull;
+import utils.OffHeapCharList;
+import utils.OffHeapIntList;
+
+import java.lang.foreign.Arena;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Token list stored off-heap in memory allocated from the arena, so a large token list doesn't load the GC.
+// Record of a token: type, line, col, text length, text start (two ints); the text is stored as UTF-16.
+// Tokens are created on access, the memory is released when the arena is closed.
+public class OffHeapTokens implements Iterable<Token> {
+    private static final int RECORD_INTS = 6;
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final OffHeapIntList records;
+    private final OffHeapCharList text;
+
+    public OffHeapTokens(Arena arena) {
+        this.records = new OffHeapIntList(arena);
+        this.text = new OffHeapCharList(arena);
+    }
+
+    // Lexes the whole input code, a LexerException is wrapped in a RuntimeException as by Lexer.iterator()
+    public static OffHeapTokens lex(String src, Arena arena) {
+        OffHeapTokens tokens = new OffHeapTokens(arena);
+        Lexer lexer = new Lexer(src);
+        Token token;
+        try {
+            while ((token = lexer.nextToken()) != null) {
+                tokens.add(token);
+            }
+        } catch (Lexer.LexerException e) {
+            throw new RuntimeException(e);
+        }
+        return tokens;
+    }
+
+    public void add(Token token) {
+        records.add(token.type().ordinal());
+        records.add(token.pos().line());
+        records.add(token.pos().col());
+        records.add(token.repr().length());
+        records.addLong(text.add(token.repr()));
+    }
+
+    public long size() {
+        return records.size() / RECORD_INTS;
+    }
+
+    public Token get(long index) {
+        long record = index * RECORD_INTS;
+        if (index < 0 || record >= records.size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size());
+        }
+        String repr = text.get(records.getLong(record + 4), records.get(record + 3));
+        return new TokenImpl(TYPES[records.get(record)], repr, new Lexer.Pos(records.get(record + 1), records.get(record + 2)));
+    }
+
+    // Off-heap memory allocated for the tokens
+    public long allocatedBytes() {
+        return records.allocatedBytes() + text.allocatedBytes();
+    }
+
+    @NotNull
+    @Override
+    public Iterator<Token> iterator() {
+        return new Iterator<>() {
+            private long index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            public Token next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(index++);
+            }
+        };
+    }
+}
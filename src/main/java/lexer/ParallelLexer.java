@@ -0,0 +1,187 @@
+package lexer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+// Lexes one large input code on several threads.
+// The code is split into chunks after '\n', only string literals can cross the chunk bounds.
+// Every chunk is lexed speculatively both "outside a string literal" and "inside one",
+// then the hypotheses are resolved from left to right and the tokens are moved to absolute positions.
+// The result is the same as the result of the sequential Lexer.
+public class ParallelLexer implements Iterable<Token> {
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+    private final String src; // input code
+    private final CharScanner scanner;
+    private final int parallelism;
+    private final int minChunkSize;
+    private final Executor executor;
+    private List<Token> tokens; // resolved tokens, null before lexing
+    private Lexer.LexerException error; // error after the last token
+
+    public ParallelLexer(String src) {
+        this(src, ForkJoinPool.commonPool().getParallelism(), ForkJoinPool.commonPool(), false);
+    }
+
+    public ParallelLexer(String src, int parallelism, Executor executor, boolean vectorized) {
+        this(src, parallelism, MIN_CHUNK_SIZE, executor, vectorized);
+    }
+
+    ParallelLexer(String src, int parallelism, int minChunkSize, Executor executor, boolean vectorized) {
+        this.src = src;
+        this.scanner = CharScanner.create(src, vectorized);
+        this.parallelism = Math.max(parallelism, 1);
+        this.minChunkSize = Math.max(minChunkSize, 1);
+        this.executor = executor;
+    }
+
+    // Tokens of the chunk lexed under one hypothesis.
+    // Lines of tokens are relative to the entry line, columns are relative to the entry column on the entry line.
+    private record ChunkResult(List<Token> tokens, int exitIndex, Lexer.Pos exitPos, Lexer.LexerException error) {
+    }
+
+    private record Chunk(int start, int end, int inStringEntry, ChunkResult outside, ChunkResult inside) {
+    }
+
+    @NotNull
+    @Override
+    public Iterator<Token> iterator() {
+        if (tokens == null) {
+            tokenize();
+        }
+        return new Iterator<>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                if (index < tokens.size()) {
+                    return true;
+                }
+                if (error != null) {
+                    throw new RuntimeException(error); // the same exception as in Lexer.iterator()
+                }
+                return false;
+            }
+
+            @Override
+            public Token next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return tokens.get(index++);
+            }
+        };
+    }
+
+    private void tokenize() {
+        List<CompletableFuture<Chunk>> futures = new ArrayList<>();
+        for (int[] bounds : split()) {
+            futures.add(CompletableFuture.supplyAsync(() -> lexChunk(bounds[0], bounds[1]), executor));
+        }
+
+        List<Token> result = new ArrayList<>();
+        int index = 0; // resolved entry of the current chunk
+        Lexer.Pos pos = new Lexer.Pos(1, 1);
+        for (CompletableFuture<Chunk> future : futures) {
+            Chunk chunk = future.join();
+            if (index >= chunk.end()) {
+                continue; // the whole chunk is inside a string literal of the previous chunk
+            }
+            ChunkResult chunkResult;
+            if (index == chunk.start()) {
+                chunkResult = chunk.outside();
+            } else if (index == chunk.inStringEntry()) {
+                chunkResult = chunk.inside();
+            } else {
+                chunkResult = lexFrom(index, chunk.end()); // misprediction, lex the rest of the chunk now
+            }
+            if (chunkResult.error() != null) {
+                // Relex from the entry with absolute positions to get the error message of the sequential Lexer
+                relexWithError(index, pos, result);
+                break;
+            }
+            for (Token token : chunkResult.tokens()) {
+                result.add(new TokenImpl(token.type(), token.repr(), toAbsolute(pos, token.pos())));
+            }
+            index = chunkResult.exitIndex();
+            pos = toAbsolute(pos, chunkResult.exitPos());
+        }
+        tokens = result;
+    }
+
+    // Chunk bounds, every chunk except the first starts right after '\n'
+    private List<int[]> split() {
+        int chunkSize = Math.max(src.length() / parallelism + 1, minChunkSize);
+        List<int[]> bounds = new ArrayList<>();
+        int start = 0;
+        while (start < src.length()) {
+            int newline = src.indexOf('\n', Math.min(start + chunkSize, src.length()) - 1);
+            int end = newline < 0 ? src.length() : newline + 1;
+            bounds.add(new int[]{start, end});
+            start = end;
+        }
+        return bounds;
+    }
+
+    private Chunk lexChunk(int start, int end) {
+        ChunkResult outside = lexFrom(start, end);
+        int inStringEntry = closingQuoteEnd(start, end);
+        ChunkResult inside = inStringEntry < end ? lexFrom(inStringEntry, end) : null;
+        return new Chunk(start, end, inStringEntry, outside, inside);
+    }
+
+    // Index after the first unescaped '"' in [start, end), or end if the whole chunk is inside a string literal
+    private int closingQuoteEnd(int start, int end) {
+        int i = start;
+        while (i < end) {
+            i = scanner.nextQuoteOrBackslash(i);
+            if (i >= end) {
+                break;
+            }
+            if (src.charAt(i) == '"') {
+                return i + 1;
+            }
+            i += 2; // skip the escaped character
+        }
+        return end;
+    }
+
+    // Lexes the tokens starting in [from, end) with positions relative to the entry
+    private ChunkResult lexFrom(int from, int end) {
+        Lexer lexer = new Lexer(src, scanner, from, end, 0, 1);
+        List<Token> chunkTokens = new ArrayList<>();
+        try {
+            Token token;
+            while ((token = lexer.nextToken()) != null) {
+                chunkTokens.add(token);
+            }
+        } catch (Lexer.LexerException e) {
+            return new ChunkResult(chunkTokens, lexer.curIndex(), lexer.curPos(), e);
+        }
+        return new ChunkResult(chunkTokens, lexer.curIndex(), lexer.curPos(), null);
+    }
+
+    private void relexWithError(int from, Lexer.Pos pos, List<Token> result) {
+        Lexer lexer = new Lexer(src, scanner, from, src.length(), pos.line(), pos.col());
+        try {
+            Token token;
+            while ((token = lexer.nextToken()) != null) {
+                result.add(token);
+            }
+        } catch (Lexer.LexerException e) {
+            error = e;
+        }
+    }
+
+    // Relative line 0 means the column is counted from the entry column, otherwise the column is absolute
+    private static Lexer.Pos toAbsolute(Lexer.Pos entry, Lexer.Pos relative) {
+        if (relative.line() == 0) {
+            return new Lexer.Pos(entry.line(), entry.col() + relative.col() - 1);
+        }
+        return new Lexer.Pos(entry.line() + relative.line(), relative.col());
+    }
+}
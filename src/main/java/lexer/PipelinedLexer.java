@@ -0,0 +1,158 @@
+package lexer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.LockSupport;
+
+// Lexes the input code on a producer thread while the consumer (e.g. Parser) reads the tokens on its own thread.
+// Tokens are passed in batches through an SPSC ring buffer, the producer waits when the ring is full (backpressure).
+// A lexer error is passed through the ring and thrown by the consumer after the last valid token,
+// an Error of the producer (e.g. OutOfMemoryError) is passed and rethrown by the consumer too.
+// Close the lexer to stop the producer if the consumer doesn't read all tokens.
+public class PipelinedLexer implements Iterable<Token>, AutoCloseable {
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final int DEFAULT_RING_CAPACITY = 64;
+    private static final int SPINS_BEFORE_PARK = 128;
+    private static final long PARK_NANOS = 20_000;
+
+    private final String src; // input code
+    private final CharScanner scanner;
+    private final int batchSize;
+    private final SpscRingBuffer<Batch> ring;
+    private volatile boolean closed = false;
+    private Thread producer;
+
+    // The last batch has last set, error is the error of the producer after the tokens of the batch
+    private record Batch(Token[] tokens, int size, boolean last, Throwable error) {
+    }
+
+    public PipelinedLexer(String src) {
+        this(src, DEFAULT_BATCH_SIZE, DEFAULT_RING_CAPACITY, false);
+    }
+
+    public PipelinedLexer(String src, int batchSize, int ringCapacity, boolean vectorized) {
+        this(src, CharScanner.create(src, vectorized), batchSize, ringCapacity);
+    }
+
+    PipelinedLexer(String src, CharScanner scanner, int batchSize, int ringCapacity) {
+        this.src = src;
+        this.scanner = scanner;
+        this.batchSize = Math.max(batchSize, 1);
+        this.ring = new SpscRingBuffer<>(ringCapacity);
+    }
+
+    // The tokens can be read only once
+    @NotNull
+    @Override
+    public synchronized Iterator<Token> iterator() {
+        if (producer != null) {
+            throw new IllegalStateException("Tokens are already read");
+        }
+        producer = new Thread(this::produce, "pipelined-lexer");
+        producer.setDaemon(true);
+        producer.start();
+        return new Iterator<>() {
+            private Batch batch = null;
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (batch == null || index == batch.size()) {
+                    if (batch != null && batch.last()) {
+                        if (batch.error() instanceof Error error) {
+                            throw error;
+                        } else if (batch.error() != null) {
+                            throw new RuntimeException(batch.error()); // the same exception as in Lexer.iterator()
+                        }
+                        return false;
+                    }
+                    batch = take();
+                    index = 0;
+                }
+                return true;
+            }
+
+            @Override
+            public Token next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return batch.tokens()[index++];
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Thread producerThread = producer;
+        if (producerThread != null) {
+            LockSupport.unpark(producerThread);
+        }
+    }
+
+    private void produce() {
+        Lexer lexer = new Lexer(src, scanner, 0, src.length(), 1, 1);
+        Token[] tokens = new Token[batchSize];
+        int size = 0;
+        try {
+            Token token;
+            while ((token = lexer.nextToken()) != null) {
+                tokens[size++] = token;
+                if (size == batchSize) {
+                    if (!put(new Batch(tokens, size, false, null))) {
+                        return; // closed
+                    }
+                    tokens = new Token[batchSize];
+                    size = 0;
+                }
+            }
+            put(new Batch(tokens, size, true, null));
+        } catch (Throwable e) { // the consumer would wait forever for the last batch otherwise
+            put(new Batch(tokens, size, true, e));
+        }
+    }
+
+    // Producer side: waits while the ring is full, false if the lexer was closed
+    private boolean put(Batch batch) {
+        int spins = 0;
+        while (!ring.offer(batch)) {
+            if (closed) {
+                return false;
+            }
+            spins = await(spins);
+        }
+        return true;
+    }
+
+    // Consumer side: waits for the next batch
+    private Batch take() {
+        int spins = 0;
+        Batch batch;
+        while ((batch = ring.poll()) == null) {
+            if (closed) {
+                throw new IllegalStateException("Lexer is closed");
+            }
+            if (!producer.isAlive()) {
+                batch = ring.poll(); // the last batch may be put after the first poll
+                if (batch == null) { // the producer couldn't even put its error
+                    throw new IllegalStateException("Lexer thread stopped without the last batch");
+                }
+                return batch;
+            }
+            spins = await(spins);
+        }
+        return batch;
+    }
+
+    private static int await(int spins) {
+        if (spins < SPINS_BEFORE_PARK) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return spins + 1;
+    }
+}
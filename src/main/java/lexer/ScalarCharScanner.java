@@ -0,0 +1,57 @@
+package lexer;
+
+// Scanner that inspects one character at a time
+class ScalarCharScanner implements CharScanner {
+    private final String src;
+
+    ScalarCharScanner(String src) {
+        this.src = src;
+    }
+
+    @Override
+    public int whitespaceEnd(int from) {
+        int i = from;
+        while (i < src.length() && Character.isWhitespace(src.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    public int identifierEnd(int from) {
+        int i = from;
+        while (i < src.length() && CharScanner.isIdentifierChar(src.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    public int digitsEnd(int from) {
+        int i = from;
+        while (i < src.length() && CharScanner.isDigit(src.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    public int nextQuoteOrBackslash(int from) {
+        int i = from;
+        while (i < src.length() && src.charAt(i) != '"' && src.charAt(i) != '\\') {
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    public int countNewlines(int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (src.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,52 @@
+package lexer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free bounded queue for exactly one producer thread and one consumer thread.
+// The producer publishes a slot with a release store of tail, the consumer frees it with a release store of head.
+// Every side caches the last seen counter of the other side to read the shared counter only when needed.
+class SpscRingBuffer<E> {
+    private final Object[] slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // next slot to read, written by the consumer
+    private final AtomicLong tail = new AtomicLong(); // next slot to write, written by the producer
+    private long cachedHead = 0; // producer's copy of head
+    private long cachedTail = 0; // consumer's copy of tail
+
+    SpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1); // capacity rounded up to a power of two
+        this.slots = new Object[size];
+        this.mask = size - 1;
+    }
+
+    // Producer side: false if the buffer is full
+    boolean offer(E element) {
+        long curTail = tail.get();
+        if (curTail - cachedHead >= slots.length) {
+            cachedHead = head.get();
+            if (curTail - cachedHead >= slots.length) {
+                return false;
+            }
+        }
+        slots[(int) curTail & mask] = element;
+        tail.lazySet(curTail + 1);
+        return true;
+    }
+
+    // Consumer side: null if the buffer is empty
+    @SuppressWarnings("unchecked")
+    E poll() {
+        long curHead = head.get();
+        if (curHead >= cachedTail) {
+            cachedTail = tail.get();
+            if (curHead >= cachedTail) {
+                return null;
+            }
+        }
+        int index = (int) curHead & mask;
+        E element = (E) slots[index];
+        slots[index] = null;
+        head.lazySet(curHead + 1);
+        return element;
+    }
+}
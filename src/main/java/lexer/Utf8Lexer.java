@@ -0,0 +1,284 @@
+package lexer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Lexer of UTF-8 input code in a byte[] or a (memory-mapped) ByteBuffer that doesn't decode the input to a String.
+// All the syntax is ASCII: only the contents of string literals are decoded, other non-ASCII characters are decoded
+// one at a time to check for whitespace. Gives the same tokens and errors as Lexer of the decoded input,
+// columns count UTF-16 chars as in Lexer.
+public class Utf8Lexer implements Iterable<Token> {
+    private static final List<String> KEYWORDS = List.of("int", "void", "if", "else", "return");
+    private static final String[] ASCII = new String[128]; // reprs of single-char tokens
+
+    static {
+        for (int c = 0; c < ASCII.length; c++) {
+            ASCII[c] = String.valueOf((char) c);
+        }
+    }
+
+    private final ByteBuffer src; // input code, read with absolute indexes from the position to the limit
+    private final int end;
+
+    private int curIndex; // current position in the input code
+    private int col = 1;
+    private int line = 1;
+
+    public Utf8Lexer(byte[] src) {
+        this(ByteBuffer.wrap(src));
+    }
+
+    public Utf8Lexer(ByteBuffer src) {
+        this.src = src;
+        this.curIndex = src.position();
+        this.end = src.limit();
+    }
+
+    // Lexer of the memory-mapped file, the mapping stays valid after the channel is closed
+    public static Utf8Lexer mapFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new Utf8Lexer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    @NotNull
+    @Override
+    public Iterator<Token> iterator() {
+        return new Iterator<>() {
+            private Token nextToken = null;
+
+            @Override
+            public boolean hasNext() {
+                if (nextToken == null) {
+                    try {
+                        nextToken = getNextToken();
+                    } catch (Lexer.LexerException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                return nextToken != null;
+            }
+
+            @Override
+            public Token next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Token curToken = nextToken;
+                nextToken = null;
+                return curToken;
+            }
+        };
+    }
+
+    private Token getNextToken() throws Lexer.LexerException {
+        while (curIndex < end) {
+            int curByte = byteAt(curIndex);
+
+            // Keywords and identifiers
+            if (curByte == '$' || curByte == '_' || (curByte >= 'a' && curByte <= 'z') || (curByte >= 'A' && curByte <= 'Z')) {
+                int identifierEnd = curIndex + 1;
+                while (identifierEnd < end && CharScanner.isIdentifierChar((char) byteAt(identifierEnd))) {
+                    identifierEnd++;
+                }
+                String keyword = matchKeyword(identifierEnd);
+                if (keyword != null) {
+                    return createToken(TokenType.KEYWORD, keyword);
+                }
+                return createToken(TokenType.IDENTIFIER, decodeAscii(curIndex, identifierEnd));
+            }
+
+            // Integers
+            int digitsStart = curByte == '-' ? curIndex + 1 : curIndex;
+            if (digitsStart < end && CharScanner.isDigit((char) byteAt(digitsStart))) {
+                int digitsEnd = digitsStart + 1;
+                while (digitsEnd < end && CharScanner.isDigit((char) byteAt(digitsEnd))) {
+                    digitsEnd++;
+                }
+                return createToken(TokenType.INT, decodeAscii(curIndex, digitsEnd));
+            }
+
+            // Whitespace characters, a non-ASCII one is decoded
+            if (curByte == '\n') {
+                line++;
+                col = 1;
+                curIndex++;
+                continue;
+            } else if (curByte < 0x80 && Character.isWhitespace(curByte)) {
+                col++;
+                curIndex++;
+                continue;
+            } else if (curByte >= 0x80) {
+                int sequenceEnd = Math.min(curIndex + sequenceLength(curByte), end);
+                if (Character.isWhitespace(decode(curIndex, sequenceEnd).charAt(0))) { // a BMP character
+                    col++;
+                    curIndex = sequenceEnd;
+                    continue;
+                }
+                throw new Lexer.LexerException("Incorrect token", new Lexer.Pos(line, col));
+            }
+
+            switch (curByte) {
+                case '=' -> {
+                    boolean comparison = curIndex + 1 < end && byteAt(curIndex + 1) == '=';
+                    return createToken(comparison ? TokenType.COMPARISON : TokenType.ASSIGN, comparison ? "==" : "=");
+                }
+                case '!' -> {
+                    if (curIndex + 1 < end && byteAt(curIndex + 1) == '=') {
+                        return createToken(TokenType.COMPARISON, "!=");
+                    }
+                    throw new Lexer.LexerException("Unknown character '!'", new Lexer.Pos(line, col));
+                }
+                case '>', '<' -> {
+                    if (curIndex + 1 < end && byteAt(curIndex + 1) == '=') {
+                        return createToken(TokenType.COMPARISON, curByte == '>' ? ">=" : "<=");
+                    }
+                    return createToken(TokenType.OPERATION, ASCII[curByte]);
+                }
+                case ',', '{', '}', ';', '(', ')' -> {
+                    return createToken(TokenType.SPECIAL, ASCII[curByte]);
+                }
+                case '"' -> {
+                    return processStringLiteral();
+                }
+                case '+', '-', '*', '/', '%' -> {
+                    return createToken(TokenType.OPERATION, ASCII[curByte]);
+                }
+                default -> throw new Lexer.LexerException("Incorrect token", new Lexer.Pos(line, col));
+            }
+        }
+        return null;
+    }
+
+    // Token of the ASCII characters at the current position
+    private Token createToken(TokenType tokenType, String tokenValue) {
+        Token token = new TokenImpl(tokenType, tokenValue, new Lexer.Pos(line, col));
+        curIndex += tokenValue.length();
+        col += tokenValue.length();
+        return token;
+    }
+
+    // Keyword at the current position not followed by a word character, or null
+    private String matchKeyword(int identifierEnd) {
+        for (String keyword : KEYWORDS) {
+            int keywordEnd = curIndex + keyword.length();
+            if (keywordEnd <= identifierEnd && startsWith(keyword) && (keywordEnd == end || !isWordChar(byteAt(keywordEnd)))) {
+                return keyword;
+            }
+        }
+        return null;
+    }
+
+    private boolean startsWith(String keyword) {
+        for (int i = 0; i < keyword.length(); i++) {
+            if (byteAt(curIndex + i) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWordChar(int c) {
+        return c < 0x80 && CharScanner.isIdentifierChar((char) c) && c != '$';
+    }
+
+    private Token processStringLiteral() throws Lexer.LexerException {
+        StringBuilder curToken = new StringBuilder();
+        curToken.append('"');
+        curIndex++; // Skip the opening quotation mark
+        col++;
+
+        while (curIndex < end) {
+            int curByte = byteAt(curIndex);
+            if (curByte == '"') {
+                curToken.append('"'); // Closing quotation mark
+                curIndex++;
+                col++;
+                break;
+            } else if (curByte == '\\') {
+                curIndex++;
+                col++;
+                if (curIndex >= end) {
+                    throw new Lexer.LexerException("Unterminated escape sequence", new Lexer.Pos(line, col));
+                }
+                switch (byteAt(curIndex)) {
+                    case '\\' -> curToken.append('\\');
+                    case '"' -> curToken.append('"');
+                    case 'n' -> curToken.append('\n');
+                    case 'r' -> curToken.append('\r');
+                    case 't' -> curToken.append('\t');
+                    case 'b' -> curToken.append('\b');
+                    case '$' -> curToken.append('$');
+                    default -> {
+                        int sequenceEnd = Math.min(curIndex + sequenceLength(byteAt(curIndex)), end);
+                        throw new Lexer.LexerException("Incorrect escaped symbol: \\" + decode(curIndex, sequenceEnd).charAt(0),
+                                new Lexer.Pos(line, col));
+                    }
+                }
+                curIndex++;
+                col++;
+            } else {
+                // Decode the run up to the next '"' or '\\', UTF-8 continuation bytes are never ASCII
+                int runEnd = curIndex + 1;
+                while (runEnd < end && byteAt(runEnd) != '"' && byteAt(runEnd) != '\\') {
+                    runEnd++;
+                }
+                String run = decode(curIndex, runEnd);
+                curToken.append(run);
+                col += run.length();
+                curIndex = runEnd;
+            }
+        }
+
+        // Checking that the string ends with closing quotation mark
+        if (curToken.charAt(curToken.length() - 1) != '"') {
+            throw new Lexer.LexerException("Unterminated string literal", new Lexer.Pos(line, col));
+        }
+
+        return new TokenImpl(TokenType.STRING, curToken.toString(), new Lexer.Pos(line, col - curToken.length()));
+    }
+
+    private int byteAt(int index) {
+        return src.get(index) & 0xFF;
+    }
+
+    // Length of the UTF-8 sequence by its first byte, 1 for a malformed one
+    private static int sequenceLength(int firstByte) {
+        if (firstByte >= 0xF0 && firstByte <= 0xF7) {
+            return 4;
+        } else if (firstByte >= 0xE0) {
+            return firstByte <= 0xEF ? 3 : 1;
+        } else if (firstByte >= 0xC0) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private String decodeAscii(int from, int to) {
+        if (src.hasArray()) {
+            return new String(src.array(), src.arrayOffset() + from, to - from, StandardCharsets.ISO_8859_1);
+        }
+        byte[] bytes = new byte[to - from];
+        src.get(from, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    // Malformed sequences are replaced as by new String(bytes, UTF_8)
+    private String decode(int from, int to) {
+        if (src.hasArray()) {
+            return new String(src.array(), src.arrayOffset() + from, to - from, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[to - from];
+        src.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,103 @@
+package lexer;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Scanner that classifies SPECIES.length() characters at a time with the Vector API.
+// Only ASCII is classified by vectors, the rest of the input is handled by the scalar scanner.
+class VectorCharScanner implements CharScanner {
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+    private final char[] chars;
+    private final ScalarCharScanner scalar;
+
+    VectorCharScanner(String src) {
+        this.chars = src.toCharArray();
+        this.scalar = new ScalarCharScanner(src);
+    }
+
+    @Override
+    public int whitespaceEnd(int from) {
+        int i = from;
+        int lastVectorStart = chars.length - SPECIES.length();
+        for (; i <= lastVectorStart; i += SPECIES.length()) {
+            ShortVector v = ShortVector.fromCharArray(SPECIES, chars, i);
+            // ASCII whitespaces of Character.isWhitespace: 0x09..0x0D, 0x1C..0x1F and ' '
+            VectorMask<Short> whitespaces = inRange(v, '\t', '\r')
+                    .or(inRange(v, '\u001C', '\u001F'))
+                    .or(v.eq((short) ' '));
+            VectorMask<Short> others = whitespaces.not();
+            if (others.anyTrue()) {
+                i += others.firstTrue();
+                break;
+            }
+        }
+        return scalar.whitespaceEnd(i); // tail and non-ASCII whitespaces
+    }
+
+    @Override
+    public int identifierEnd(int from) {
+        int i = from;
+        int lastVectorStart = chars.length - SPECIES.length();
+        for (; i <= lastVectorStart; i += SPECIES.length()) {
+            ShortVector v = ShortVector.fromCharArray(SPECIES, chars, i);
+            VectorMask<Short> identifierChars = inRange(v, 'a', 'z')
+                    .or(inRange(v, 'A', 'Z'))
+                    .or(inRange(v, '0', '9'))
+                    .or(v.eq((short) '_'))
+                    .or(v.eq((short) '$'));
+            VectorMask<Short> others = identifierChars.not();
+            if (others.anyTrue()) {
+                return i + others.firstTrue();
+            }
+        }
+        return scalar.identifierEnd(i);
+    }
+
+    @Override
+    public int digitsEnd(int from) {
+        int i = from;
+        int lastVectorStart = chars.length - SPECIES.length();
+        for (; i <= lastVectorStart; i += SPECIES.length()) {
+            ShortVector v = ShortVector.fromCharArray(SPECIES, chars, i);
+            VectorMask<Short> others = inRange(v, '0', '9').not();
+            if (others.anyTrue()) {
+                return i + others.firstTrue();
+            }
+        }
+        return scalar.digitsEnd(i);
+    }
+
+    @Override
+    public int nextQuoteOrBackslash(int from) {
+        int i = from;
+        int lastVectorStart = chars.length - SPECIES.length();
+        for (; i <= lastVectorStart; i += SPECIES.length()) {
+            ShortVector v = ShortVector.fromCharArray(SPECIES, chars, i);
+            VectorMask<Short> specials = v.eq((short) '"').or(v.eq((short) '\\'));
+            if (specials.anyTrue()) {
+                return i + specials.firstTrue();
+            }
+        }
+        return scalar.nextQuoteOrBackslash(i);
+    }
+
+    @Override
+    public int countNewlines(int from, int to) {
+        int count = 0;
+        int i = from;
+        int upperBound = from + SPECIES.loopBound(to - from);
+        for (; i < upperBound; i += SPECIES.length()) {
+            ShortVector v = ShortVector.fromCharArray(SPECIES, chars, i);
+            count += v.eq((short) '\n').trueCount();
+        }
+        return count + scalar.countNewlines(i, to);
+    }
+
+    // Lanes with lower <= c <= upper, chars above 0x7FFF are negative shorts and never match
+    private static VectorMask<Short> inRange(ShortVector v, char lower, char upper) {
+        return v.compare(VectorOperators.GE, (short) lower).and(v.compare(VectorOperators.LE, (short) upper));
+    }
+}
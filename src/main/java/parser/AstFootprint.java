@@ -0,0 +1,200 @@
+package parser;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import lexer.Lexer;
+import lexer.Token;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+// Estimated heap footprint of an AST: node counts and bytes per node type, including the Lists and Strings
+// the nodes own and the tokens kept by unparsed lazy function bodies.
+// Sizes are computed from the fields of the classes for the layout of the running JVM (compressed oops and
+// class pointers, object alignment); they estimate the HotSpot layout rather than measure it.
+// Every object is counted once: an object shared by several nodes (e.g. by hash-consing) is counted for the first one.
+public class AstFootprint {
+    private static final boolean COMPRESSED_OOPS = Boolean.parseBoolean(vmOption("UseCompressedOops", "true"));
+    private static final boolean COMPRESSED_CLASS_POINTERS = Boolean.parseBoolean(vmOption("UseCompressedClassPointers", "true"));
+    private static final int ALIGNMENT = Integer.parseInt(vmOption("ObjectAlignmentInBytes", "8"));
+    private static final int REFERENCE_BYTES = COMPRESSED_OOPS ? 4 : 8;
+    private static final int HEADER_BYTES = COMPRESSED_CLASS_POINTERS ? 12 : 16;
+    private static final int ARRAY_HEADER_BYTES = COMPRESSED_CLASS_POINTERS ? 16 : 24; // with the length
+    private static final int ARRAY_LIST_DEFAULT_CAPACITY = 10;
+
+    private static final ClassValue<Long> SHALLOW_SIZES = new ClassValue<>() {
+        @Override
+        protected Long computeValue(Class<?> type) {
+            long bytes = HEADER_BYTES;
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        bytes += fieldBytes(field.getType());
+                    }
+                }
+            }
+            return align(bytes);
+        }
+    };
+
+    // bytes -- the nodes of the type and the objects they own
+    public record TypeFootprint(long count, long bytes) {
+    }
+
+    public record Report(Map<String, TypeFootprint> byType, long nodes, long bytes) {
+        public double bytesPerSourceByte(long sourceBytes) {
+            return sourceBytes == 0 ? 0 : (double) bytes / sourceBytes;
+        }
+    }
+
+    private final Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<String, long[]> byType = new TreeMap<>(); // type -> {count, bytes}
+    private final Deque<Node> pending = new ArrayDeque<>(); // a work list instead of recursion for deep trees
+
+    private AstFootprint() {
+    }
+
+    public static Report measure(Program program) {
+        AstFootprint footprint = new AstFootprint();
+        footprint.pending.push(program);
+        while (!footprint.pending.isEmpty()) {
+            footprint.visit(footprint.pending.pop());
+        }
+        Map<String, TypeFootprint> types = new TreeMap<>();
+        long nodes = 0;
+        long bytes = 0;
+        for (Map.Entry<String, long[]> entry : footprint.byType.entrySet()) {
+            types.put(entry.getKey(), new TypeFootprint(entry.getValue()[0], entry.getValue()[1]));
+            nodes += entry.getValue()[0];
+            bytes += entry.getValue()[1];
+        }
+        return new Report(types, nodes, bytes);
+    }
+
+    private void visit(Node node) {
+        if (node == null || !counted.add(node)) {
+            return;
+        }
+        long bytes = shallowSize(node);
+        switch (node) {
+            case Program program -> bytes += children(program.getNodes());
+            case Block block -> bytes += children(block.getStatements());
+            case FuncDeclaration function -> {
+                bytes += string(function.getType());
+                pending.push(function.getIdentifier());
+                bytes += children(function.getArgs());
+                if (function.isBodyParsed()) {
+                    pending.push(function.getFuncBody());
+                }
+                if (function.getBodyTokens() != null) {
+                    bytes += tokens(function.getBodyTokens()); // lazy bodies keep their tokens
+                }
+            }
+            case FuncCall call -> {
+                pending.push(call.getIdentifier());
+                bytes += children(call.getArgs());
+            }
+            case Assignment assignment -> {
+                pending.push(assignment.getIdentifier());
+                pending.push(assignment.getExpr());
+            }
+            case BinaryOp binaryOp -> {
+                pending.push(binaryOp.getLeft());
+                bytes += string(binaryOp.getOperator());
+                pending.push(binaryOp.getRight());
+            }
+            case IfStatement ifStatement -> {
+                pending.push(ifStatement.getCondition());
+                pending.push(ifStatement.getThenBlock());
+                pending.push(ifStatement.getElseBlock());
+            }
+            case ReturnStatement returnStatement -> pending.push(returnStatement.getExpression());
+            case Identifier identifier -> bytes += string(identifier.getName());
+            case StringLiteral literal -> bytes += string(literal.getValue());
+            default -> {
+            }
+        }
+        long[] type = byType.computeIfAbsent(node.getClass().getSimpleName(), name -> new long[2]);
+        type[0]++;
+        type[1] += bytes;
+    }
+
+    // Size of the list, its elements are visited as nodes
+    private long children(List<? extends Node> nodes) {
+        nodes.forEach(pending::push);
+        return list(nodes);
+    }
+
+    private long tokens(List<Token> tokens) {
+        long bytes = list(tokens);
+        for (Token token : tokens) {
+            if (counted.add(token)) {
+                bytes += shallowSize(token) + string(token.repr());
+                Lexer.Pos pos = token.pos();
+                if (counted.add(pos)) {
+                    bytes += shallowSize(pos);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private long list(List<?> list) {
+        if (list == null || !counted.add(list)) {
+            return 0;
+        }
+        if (list instanceof ArrayList<?>) {
+            int capacity = 0; // the shared empty array until the first element is added
+            if (!list.isEmpty()) {
+                capacity = ARRAY_LIST_DEFAULT_CAPACITY;
+                while (capacity < list.size()) {
+                    capacity += capacity >> 1;
+                }
+            }
+            return shallowSize(list) + (capacity == 0 ? 0 : array(capacity, REFERENCE_BYTES));
+        }
+        return shallowSize(list) + (list.size() > 2 ? array(list.size(), REFERENCE_BYTES) : 0); // List.of holds up to 2 fields
+    }
+
+    private long string(String string) {
+        if (string == null || !counted.add(string)) {
+            return 0;
+        }
+        boolean latin1 = string.chars().allMatch(c -> c <= 0xFF); // compact strings
+        return shallowSize(string) + array(string.length(), latin1 ? 1 : 2);
+    }
+
+    private static long shallowSize(Object object) {
+        return SHALLOW_SIZES.get(object.getClass());
+    }
+
+    private static long array(long length, int elementBytes) {
+        return align(ARRAY_HEADER_BYTES + length * elementBytes);
+    }
+
+    private static long fieldBytes(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        } else if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return REFERENCE_BYTES;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static String vmOption(String name, String defaultValue) {
+        try {
+            return ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class).getVMOption(name).getValue();
+        } catch (RuntimeException e) {
+            return defaultValue; // not a HotSpot JVM
+        }
+    }
+}
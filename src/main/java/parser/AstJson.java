@@ -0,0 +1,547 @@
+package parser;
+
+import lexer.Lexer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+// JSON form of the AST for other tools. A node is an object with its "kind" (the node class), its fields and,
+// if recorded, its source "line" and "col":
+//   {"kind":"Assignment","identifier":{"kind":"Identifier","line":1,"col":1,"name":"x"},"expr":{...}}
+// The writer encodes the nodes straight into the stream and the reader builds them straight from it.
+// Both keep their place in the tree on an explicit stack, not on the call stack: long chains of operators
+// are left-deep. The writer's memory grows only with the depth of the tree.
+public class AstJson {
+    private static final int BUFFER_SIZE = 8192;
+
+    private AstJson() {
+    }
+
+    // positions -- source positions of the nodes or null, the stream is flushed but not closed
+    public static void write(Program program, SourcePositions positions, OutputStream out) throws IOException {
+        Writer writer = new Writer(out, positions);
+        writer.writeTree(program);
+        writer.flush();
+    }
+
+    // Parses the input code and writes every top-level node as soon as it is parsed, the whole AST is never kept
+    public static void parseAndWrite(String src, boolean withPositions, OutputStream out) throws IOException {
+        parseAndWrite(src, ParseLimits.UNLIMITED, new CancellationToken(), withPositions, out);
+    }
+
+    public static void parseAndWrite(String src, ParseLimits limits, CancellationToken cancellation,
+                                     boolean withPositions, OutputStream out) throws IOException {
+        SourcePositions positions = withPositions ? new SourcePositions() : null;
+        Parser parser = Parser.fromSource(src, false, limits, cancellation);
+        parser.setSourcePositions(positions);
+        Writer writer = new Writer(out, positions);
+        writer.writeAscii("{\"kind\":\"Program\",\"nodes\":[");
+        boolean[] first = {true};
+        try {
+            parser.parse(node -> {
+                try {
+                    if (!first[0]) {
+                        writer.writeByte(',');
+                    }
+                    first[0] = false;
+                    writer.writeTree(node);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (positions != null) {
+                    positions.clear(); // the node won't be seen again
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.writeAscii("]}");
+        writer.flush();
+    }
+
+    // Reads one program up to the end of the stream; positions -- receives the source positions or null
+    public static Program read(InputStream in, SourcePositions positions) throws IOException {
+        return new Reader(in, positions).readProgram();
+    }
+
+    // List of nodes being written, one element at a time
+    private static final class Elements {
+        private final List<? extends Node> nodes;
+        private int next = 0;
+
+        Elements(List<? extends Node> nodes) {
+            this.nodes = nodes;
+        }
+    }
+
+    private static final class Writer {
+        private final OutputStream out;
+        private final SourcePositions positions;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int size = 0;
+        private final Deque<Object> pending = new ArrayDeque<>(); // nodes, lists and text to write
+
+        Writer(OutputStream out, SourcePositions positions) {
+            this.out = out;
+            this.positions = positions;
+        }
+
+        void writeTree(Node root) throws IOException {
+            pending.push(root);
+            while (!pending.isEmpty()) {
+                switch (pending.pop()) {
+                    case String text -> writeAscii(text);
+                    case Node node -> writeNode(node);
+                    case Elements elements -> {
+                        if (elements.next < elements.nodes.size()) {
+                            if (elements.next > 0) {
+                                writeByte(',');
+                            }
+                            pending.push(elements);
+                            pending.push(elements.nodes.get(elements.next++));
+                        }
+                    }
+                    default -> throw new IllegalStateException();
+                }
+            }
+        }
+
+        // Writes the kind, the position and the scalar fields, the rest is left pending
+        private void writeNode(Node node) throws IOException {
+            writeAscii("{\"kind\":\"");
+            writeAscii(node.getClass().getSimpleName());
+            writeByte('"');
+            Lexer.Pos pos = positions != null ? positions.get(node) : null;
+            if (pos != null) {
+                writeAscii(",\"line\":");
+                writeInt(pos.line());
+                writeAscii(",\"col\":");
+                writeInt(pos.col());
+            }
+            switch (node) {
+                case Program program -> {
+                    writeAscii(",\"nodes\":[");
+                    then(new Elements(program.getNodes()), "]}");
+                }
+                case Block block -> {
+                    writeAscii(",\"statements\":[");
+                    then(new Elements(block.getStatements()), "]}");
+                }
+                case FuncDeclaration function -> {
+                    writeAscii(",\"type\":");
+                    writeString(function.getType());
+                    writeAscii(",\"identifier\":");
+                    then(function.getIdentifier(), ",\"args\":[", new Elements(function.getArgs()), "],\"body\":",
+                            function.getFuncBody(), "}");
+                }
+                case FuncCall call -> {
+                    writeAscii(",\"identifier\":");
+                    then(call.getIdentifier(), ",\"args\":[", new Elements(call.getArgs()), "]}");
+                }
+                case Assignment assignment -> {
+                    writeAscii(",\"identifier\":");
+                    then(assignment.getIdentifier(), ",\"expr\":", assignment.getExpr(), "}");
+                }
+                case BinaryOp binaryOp -> {
+                    writeAscii(",\"operator\":");
+                    writeString(binaryOp.getOperator());
+                    writeAscii(",\"left\":");
+                    then(binaryOp.getLeft(), ",\"right\":", binaryOp.getRight(), "}");
+                }
+                case IfStatement ifStatement -> {
+                    writeAscii(",\"condition\":");
+                    if (ifStatement.getElseBlock() != null) {
+                        then(ifStatement.getCondition(), ",\"thenBlock\":", ifStatement.getThenBlock(),
+                                ",\"elseBlock\":", ifStatement.getElseBlock(), "}");
+                    } else {
+                        then(ifStatement.getCondition(), ",\"thenBlock\":", ifStatement.getThenBlock(), "}");
+                    }
+                }
+                case ReturnStatement returnStatement -> {
+                    writeAscii(",\"expression\":");
+                    then(returnStatement.getExpression(), "}");
+                }
+                case Identifier identifier -> {
+                    writeAscii(",\"name\":");
+                    writeString(identifier.getName());
+                    writeByte('}');
+                }
+                case StringLiteral literal -> {
+                    writeAscii(",\"value\":");
+                    writeString(literal.getValue());
+                    writeByte('}');
+                }
+                case IntLiteral literal -> {
+                    writeAscii(",\"value\":");
+                    writeInt(literal.getValue());
+                    writeByte('}');
+                }
+                default -> throw new IllegalArgumentException("Unknown node: " + node.getClass().getSimpleName());
+            }
+        }
+
+        // Items are written in the given order after the current node
+        private void then(Object... items) {
+            for (int i = items.length - 1; i >= 0; i--) {
+                pending.push(items[i]);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            writeByte('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    writeByte('\\');
+                    writeByte(c);
+                } else if (c < 0x20) {
+                    switch (c) {
+                        case '\n' -> writeAscii("\\n");
+                        case '\r' -> writeAscii("\\r");
+                        case '\t' -> writeAscii("\\t");
+                        case '\b' -> writeAscii("\\b");
+                        case '\f' -> writeAscii("\\f");
+                        default -> writeUnicodeEscape(c);
+                    }
+                } else if (c < 0x80) {
+                    writeByte(c);
+                } else if (c < 0x800) {
+                    writeByte(0xC0 | (c >> 6));
+                    writeByte(0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    writeByte(0xF0 | (codePoint >> 18));
+                    writeByte(0x80 | ((codePoint >> 12) & 0x3F));
+                    writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+                    writeByte(0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    writeUnicodeEscape(c); // unpaired, not encodable in UTF-8
+                } else {
+                    writeByte(0xE0 | (c >> 12));
+                    writeByte(0x80 | ((c >> 6) & 0x3F));
+                    writeByte(0x80 | (c & 0x3F));
+                }
+            }
+            writeByte('"');
+        }
+
+        private void writeUnicodeEscape(char c) throws IOException {
+            writeAscii("\\u");
+            for (int shift = 12; shift >= 0; shift -= 4) {
+                writeByte(Character.forDigit((c >> shift) & 0xF, 16));
+            }
+        }
+
+        private void writeInt(int value) throws IOException {
+            long rest = value;
+            if (rest < 0) {
+                writeByte('-');
+                rest = -rest;
+            }
+            long divisor = 1;
+            while (divisor * 10 <= rest) {
+                divisor *= 10;
+            }
+            for (; divisor > 0; divisor /= 10) {
+                writeByte((int) ('0' + rest / divisor % 10));
+            }
+        }
+
+        void writeAscii(String text) throws IOException {
+            for (int i = 0; i < text.length(); i++) {
+                writeByte(text.charAt(i));
+            }
+        }
+
+        void writeByte(int b) throws IOException {
+            if (size == buffer.length) {
+                out.write(buffer, 0, size);
+                size = 0;
+            }
+            buffer[size++] = (byte) b;
+        }
+
+        void flush() throws IOException {
+            out.write(buffer, 0, size);
+            size = 0;
+            out.flush();
+        }
+    }
+
+    // Object or array being read
+    private static final class Frame {
+        private final String field; // name of the field in the parent object, null in an array
+        private final List<Object> elements; // null for an object
+        private final Map<String, Object> fields; // null for an array
+
+        Frame(String field, boolean array) {
+            this.field = field;
+            this.elements = array ? new ArrayList<>() : null;
+            this.fields = array ? null : new HashMap<>();
+        }
+
+        boolean isEmpty() {
+            return elements != null ? elements.isEmpty() : fields.isEmpty();
+        }
+    }
+
+    private static final class Reader {
+        private static final Object NULL = new Object(); // the null value of a field
+
+        private final InputStream in;
+        private final SourcePositions positions;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int size = 0;
+        private int index = 0;
+        private long offset = 0; // of the buffer in the stream
+        private final StringBuilder text = new StringBuilder();
+
+        Reader(InputStream in, SourcePositions positions) {
+            this.in = in;
+            this.positions = positions;
+        }
+
+        Program readProgram() throws IOException {
+            if (nextNonWhitespace() != '{') {
+                throw error("expected {");
+            }
+            Deque<Frame> frames = new ArrayDeque<>();
+            frames.push(new Frame(null, false));
+            Object result = null;
+            while (!frames.isEmpty()) {
+                Frame frame = frames.peek();
+                int c = nextNonWhitespace();
+                Object value;
+                String field = null; // of the value in the parent object
+                if (c == (frame.elements != null ? ']' : '}')) {
+                    frames.pop();
+                    value = frame.elements != null ? frame.elements : build(frame.fields);
+                    field = frame.field;
+                } else {
+                    if (!frame.isEmpty()) {
+                        if (c != ',') {
+                            throw error("expected , or " + (frame.elements != null ? "]" : "}"));
+                        }
+                        c = nextNonWhitespace();
+                    }
+                    if (frame.fields != null) {
+                        if (c != '"') {
+                            throw error("expected a field name");
+                        }
+                        field = readString();
+                        if (nextNonWhitespace() != ':') {
+                            throw error("expected :");
+                        }
+                        c = nextNonWhitespace();
+                    }
+                    if (c == '{' || c == '[') {
+                        frames.push(new Frame(field, c == '['));
+                        continue;
+                    }
+                    value = switch (c) {
+                        case '"' -> readString();
+                        case 'n' -> readNull();
+                        default -> readInt(c);
+                    };
+                }
+                Frame parent = frames.peek();
+                if (parent == null) {
+                    result = value;
+                } else if (parent.elements != null) {
+                    parent.elements.add(value);
+                } else if (parent.fields.put(field, value) != null) {
+                    throw error("duplicate field " + field);
+                }
+            }
+            if (nextNonWhitespace() != -1) {
+                throw error("expected the end of input");
+            }
+            if (!(result instanceof Program program)) {
+                throw error("expected a Program");
+            }
+            return program;
+        }
+
+        private Node build(Map<String, Object> fields) throws IOException {
+            String kind = field(fields, "kind", String.class);
+            Node node = switch (kind) {
+                case "Program" -> new Program(list(fields, "nodes", Node.class));
+                case "Block" -> new Block(list(fields, "statements", Statement.class));
+                case "FuncDeclaration" -> new FuncDeclaration(field(fields, "type", String.class),
+                        field(fields, "identifier", Identifier.class), list(fields, "args", Identifier.class),
+                        field(fields, "body", Block.class));
+                case "FuncCall" -> new FuncCall(field(fields, "identifier", Identifier.class), list(fields, "args", MathExpr.class));
+                case "Assignment" -> new Assignment(field(fields, "identifier", Identifier.class),
+                        field(fields, "expr", Statement.class));
+                case "BinaryOp" -> new BinaryOp(field(fields, "left", MathExpr.class), field(fields, "operator", String.class),
+                        field(fields, "right", MathExpr.class));
+                case "IfStatement" -> new IfStatement(field(fields, "condition", MathExpr.class),
+                        field(fields, "thenBlock", Block.class),
+                        isNull(fields.get("elseBlock")) ? null : field(fields, "elseBlock", Block.class));
+                case "ReturnStatement" -> new ReturnStatement(field(fields, "expression", MathExpr.class));
+                case "Identifier" -> new Identifier(field(fields, "name", String.class));
+                case "StringLiteral" -> new StringLiteral(field(fields, "value", String.class));
+                case "IntLiteral" -> new IntLiteral(field(fields, "value", Integer.class));
+                default -> throw error("unknown kind " + kind);
+            };
+            if (positions != null && !isNull(fields.get("line"))) {
+                positions.record(node, new Lexer.Pos(field(fields, "line", Integer.class), field(fields, "col", Integer.class)));
+            }
+            return node;
+        }
+
+        private static boolean isNull(Object value) {
+            return value == null || value == NULL;
+        }
+
+        private <T> T field(Map<String, Object> fields, String name, Class<T> type) throws IOException {
+            Object value = fields.get(name);
+            if (!type.isInstance(value)) {
+                throw error("expected " + type.getSimpleName() + " in the field " + name + " of " + fields.get("kind"));
+            }
+            return type.cast(value);
+        }
+
+        private <T> List<T> list(Map<String, Object> fields, String name, Class<T> type) throws IOException {
+            List<?> values = field(fields, name, List.class);
+            List<T> list = new ArrayList<>(values.size());
+            for (Object value : values) {
+                if (!type.isInstance(value)) {
+                    throw error("expected " + type.getSimpleName() + " in the list " + name + " of " + fields.get("kind"));
+                }
+                list.add(type.cast(value));
+            }
+            return list;
+        }
+
+        // After the opening quotation mark
+        private String readString() throws IOException {
+            text.setLength(0);
+            while (true) {
+                int c = next();
+                if (c == '"') {
+                    return text.toString();
+                } else if (c == '\\') {
+                    int escaped = next();
+                    switch (escaped) {
+                        case '"', '\\', '/' -> text.append((char) escaped);
+                        case 'n' -> text.append('\n');
+                        case 'r' -> text.append('\r');
+                        case 't' -> text.append('\t');
+                        case 'b' -> text.append('\b');
+                        case 'f' -> text.append('\f');
+                        case 'u' -> {
+                            int code = 0;
+                            for (int i = 0; i < 4; i++) {
+                                int digit = Character.digit(next(), 16);
+                                if (digit < 0) {
+                                    throw error("incorrect unicode escape");
+                                }
+                                code = code * 16 + digit;
+                            }
+                            text.append((char) code);
+                        }
+                        default -> throw error("incorrect escape");
+                    }
+                } else if (c < 0x20) {
+                    throw error(c == -1 ? "unterminated string" : "control character in string");
+                } else if (c < 0x80) {
+                    text.append((char) c);
+                } else {
+                    text.appendCodePoint(readCodePoint(c));
+                }
+            }
+        }
+
+        private int readCodePoint(int first) throws IOException {
+            int length;
+            int codePoint;
+            if (first >= 0xC2 && first <= 0xDF) {
+                length = 2;
+                codePoint = first & 0x1F;
+            } else if (first >= 0xE0 && first <= 0xEF) {
+                length = 3;
+                codePoint = first & 0x0F;
+            } else if (first >= 0xF0 && first <= 0xF4) {
+                length = 4;
+                codePoint = first & 0x07;
+            } else {
+                throw error("malformed UTF-8");
+            }
+            for (int i = 1; i < length; i++) {
+                int c = next();
+                if ((c & 0xC0) != 0x80) {
+                    throw error("malformed UTF-8");
+                }
+                codePoint = (codePoint << 6) | (c & 0x3F);
+            }
+            if (codePoint > Character.MAX_CODE_POINT || Character.isSurrogate((char) codePoint) && codePoint <= 0xFFFF) {
+                throw error("malformed UTF-8");
+            }
+            return codePoint;
+        }
+
+        private Object readNull() throws IOException {
+            if (next() != 'u' || next() != 'l' || next() != 'l') {
+                throw error("expected null");
+            }
+            return NULL;
+        }
+
+        private int readInt(int first) throws IOException {
+            boolean negative = first == '-';
+            int c = negative ? next() : first;
+            if (c < '0' || c > '9') {
+                throw error("expected a value");
+            }
+            long value = c - '0';
+            while (peek() >= '0' && peek() <= '9') {
+                value = value * 10 + (next() - '0');
+                if (value > (long) Integer.MAX_VALUE + 1) {
+                    throw error("number out of the int range");
+                }
+            }
+            value = negative ? -value : value;
+            if (value > Integer.MAX_VALUE) {
+                throw error("number out of the int range");
+            }
+            return (int) value;
+        }
+
+        private int nextNonWhitespace() throws IOException {
+            int c = next();
+            while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                c = next();
+            }
+            return c;
+        }
+
+        // -1 at the end of input
+        private int next() throws IOException {
+            int c = peek();
+            if (c != -1) {
+                index++;
+            }
+            return c;
+        }
+
+        private int peek() throws IOException {
+            if (index == size) {
+                offset += size;
+                size = Math.max(in.read(buffer), 0);
+                index = 0;
+                if (size == 0) {
+                    return -1;
+                }
+            }
+            return buffer[index] & 0xFF;
+        }
+
+        private IOException error(String message) {
+            return new IOException("Incorrect AST JSON at byte " + (offset + index) + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package parser;
+
+// Lets another thread abort an in-flight parse, the parser checks the token for every read token
+public class CancellationToken {
+    private volatile boolean cancelled = false;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,392 @@
+package parser;
+
+import java.io.PrintStream;
+import java.util.*;
+import java.util.function.BinaryOperator;
+import java.util.function.IntBinaryOperator;
+
+// Interpreter that compiles the AST into a tree of closures once and then runs the closures.
+// Values, scoping and errors are those of Interpreter. Local variables are resolved to frame slots and global
+// variables to their cells at compile time, literals are decoded once; a function is compiled on its first call.
+// A BinaryOp specializes itself on its first execution to the int or the string operands it sees and becomes
+// generic for good when other operands come; a FuncCall caches its function until a function is declared again.
+// There is no memoization and no ExecutionBudget: programs from untrusted users are run with Interpreter.
+public class ClosureInterpreter {
+    private static final String MAIN = "main";
+    private static final String PRINT = "print";
+
+    private final PrintStream out;
+    private final Map<String, Cell> globals = new HashMap<>();
+    private final Map<String, CompiledFunction> functions = new HashMap<>();
+    private final Map<FuncDeclaration, CompiledFunction> compiledFunctions = new IdentityHashMap<>();
+    private long functionsVersion = 0; // changes when a function is declared, the cached call targets are checked by it
+
+    // Value of a global variable, null until it is assigned
+    private static final class Cell {
+        private Object value;
+    }
+
+    // Local variables of the function call and its returned value, top-level code has no locals
+    private static final class Frame {
+        private final Object[] locals;
+        private Object returned;
+
+        Frame(int slots) {
+            this.locals = new Object[slots];
+        }
+    }
+
+    // Value of the expression, null for calls of functions without a returned value
+    private interface Expr {
+        Object evaluate(Frame frame);
+    }
+
+    // Returns true if a return statement was executed, the value is in the frame
+    private interface Stmt {
+        boolean execute(Frame frame);
+    }
+
+    public ClosureInterpreter(PrintStream out) {
+        this.out = out;
+    }
+
+    public void run(Program program) {
+        Frame topLevel = new Frame(0);
+        for (Node node : program.getNodes()) {
+            if (node instanceof Statement || node instanceof Block) {
+                compileStatement(node, null).execute(topLevel);
+            }
+        }
+        CompiledFunction main = functions.get(MAIN);
+        if (main != null && main.declaration.getArgs().isEmpty()) {
+            main.call(new Object[0]);
+        }
+    }
+
+    public Object getGlobal(String name) {
+        Cell cell = globals.get(name);
+        return cell != null ? cell.value : null;
+    }
+
+    // slots -- slots of the local variables of the function, null at the top level
+    private Stmt compileStatement(Node node, Map<String, Integer> slots) {
+        switch (node) {
+            case null -> {
+                return frame -> false;
+            }
+            case Block block -> {
+                Stmt[] statements = new Stmt[block.getStatements().size()];
+                for (int i = 0; i < statements.length; i++) {
+                    statements[i] = compileStatement(block.getStatements().get(i), slots);
+                }
+                return frame -> {
+                    for (Stmt statement : statements) {
+                        if (statement.execute(frame)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                };
+            }
+            case FuncDeclaration declaration -> {
+                String name = declaration.getIdentifier().getName();
+                CompiledFunction function = compiledFunctions.computeIfAbsent(declaration, CompiledFunction::new);
+                return frame -> {
+                    functions.put(name, function);
+                    functionsVersion++;
+                    return false;
+                };
+            }
+            case Assignment assignment -> {
+                return compileAssignment(assignment.getIdentifier().getName(), compileExpr(assignment.getExpr(), slots), slots);
+            }
+            case IfStatement ifStatement -> {
+                Expr condition = compileExpr(ifStatement.getCondition(), slots);
+                Stmt thenBlock = compileStatement(ifStatement.getThenBlock(), slots);
+                Stmt elseBlock = compileStatement(ifStatement.getElseBlock(), slots);
+                return frame -> Interpreter.isTrue(condition.evaluate(frame)) ? thenBlock.execute(frame) : elseBlock.execute(frame);
+            }
+            case ReturnStatement returnStatement -> {
+                if (slots == null) {
+                    return frame -> {
+                        throw new Interpreter.InterpreterException("Return outside of function");
+                    };
+                }
+                Expr expression = compileExpr(returnStatement.getExpression(), slots);
+                return frame -> {
+                    frame.returned = expression.evaluate(frame);
+                    return true;
+                };
+            }
+            case Statement statement -> { // function call or expression
+                Expr expr = compileExpr(statement, slots);
+                return frame -> {
+                    expr.evaluate(frame);
+                    return false;
+                };
+            }
+            default -> {
+                String message = "Unexpected node " + node.getClass().getSimpleName();
+                return frame -> {
+                    throw new Interpreter.InterpreterException(message);
+                };
+            }
+        }
+    }
+
+    private Stmt compileAssignment(String name, Expr value, Map<String, Integer> slots) {
+        Integer slot = slots != null ? slots.get(name) : null;
+        String message = "No value to assign to " + name;
+        if (slot != null) {
+            int index = slot;
+            return frame -> {
+                Object result = value.evaluate(frame);
+                if (result == null) {
+                    throw new Interpreter.InterpreterException(message);
+                }
+                frame.locals[index] = result;
+                return false;
+            };
+        }
+        Cell cell = globals.computeIfAbsent(name, key -> new Cell());
+        return frame -> {
+            Object result = value.evaluate(frame);
+            if (result == null) {
+                throw new Interpreter.InterpreterException(message);
+            }
+            cell.value = result;
+            return false;
+        };
+    }
+
+    private Expr compileExpr(Statement expr, Map<String, Integer> slots) {
+        switch (expr) {
+            case IntLiteral literal -> {
+                Integer value = literal.getValue();
+                return frame -> value;
+            }
+            case StringLiteral literal -> {
+                String value = Interpreter.unquote(literal.getValue());
+                return frame -> value;
+            }
+            case Identifier identifier -> {
+                return compileRead(identifier.getName(), slots);
+            }
+            case BinaryOp binaryOp -> {
+                return new BinaryOpNode(compileExpr(binaryOp.getLeft(), slots), binaryOp.getOperator(),
+                        compileExpr(binaryOp.getRight(), slots));
+            }
+            case FuncCall call -> {
+                Expr[] args = new Expr[call.getArgs().size()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = compileExpr(call.getArgs().get(i), slots);
+                }
+                return new CallNode(call.getIdentifier().getName(), args);
+            }
+            default -> {
+                String message = "Unexpected expression " + expr.getClass().getSimpleName();
+                return frame -> {
+                    throw new Interpreter.InterpreterException(message);
+                };
+            }
+        }
+    }
+
+    private Expr compileRead(String name, Map<String, Integer> slots) {
+        Integer slot = slots != null ? slots.get(name) : null;
+        String message = "Undefined variable " + name;
+        if (slot != null) {
+            int index = slot;
+            return frame -> {
+                Object value = frame.locals[index];
+                if (value == null) {
+                    throw new Interpreter.InterpreterException(message);
+                }
+                return value;
+            };
+        }
+        Cell cell = globals.computeIfAbsent(name, key -> new Cell());
+        return frame -> {
+            Object value = cell.value;
+            if (value == null) {
+                throw new Interpreter.InterpreterException(message);
+            }
+            return value;
+        };
+    }
+
+    private void print(Object[] args) {
+        StringJoiner line = new StringJoiner(" ");
+        for (Object arg : args) {
+            line.add(String.valueOf(arg));
+        }
+        out.println(line);
+    }
+
+    // Binary operation that specializes itself on the operands of its first execution
+    private static final class BinaryOpNode implements Expr {
+        private enum State {
+            UNINITIALIZED, INT, STRING, GENERIC
+        }
+
+        private final Expr left;
+        private final String operator;
+        private final Expr right;
+        private final IntBinaryOperator intOperation; // null if the operator isn't defined for ints
+        private final BinaryOperator<Object> stringOperation; // null if the operator isn't defined for strings
+        private State state = State.UNINITIALIZED;
+
+        BinaryOpNode(Expr left, String operator, Expr right) {
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+            this.intOperation = intOperation(operator);
+            this.stringOperation = stringOperation(operator);
+        }
+
+        @Override
+        public Object evaluate(Frame frame) {
+            Object a = left.evaluate(frame);
+            Object b = right.evaluate(frame);
+            switch (state) {
+                case INT -> {
+                    if (a instanceof Integer x && b instanceof Integer y) {
+                        return intOperation.applyAsInt(x, y);
+                    }
+                }
+                case STRING -> {
+                    if (isStringOperands(a, b)) {
+                        return stringOperation.apply(a, b);
+                    }
+                }
+                case UNINITIALIZED -> {
+                    if (a instanceof Integer x && b instanceof Integer y && intOperation != null) {
+                        state = State.INT;
+                        return intOperation.applyAsInt(x, y);
+                    } else if (isStringOperands(a, b) && stringOperation != null) {
+                        state = State.STRING;
+                        return stringOperation.apply(a, b);
+                    }
+                }
+                case GENERIC -> {
+                    return Interpreter.binaryOp(operator, a, b);
+                }
+            }
+            state = State.GENERIC; // operands of other types, the node stays generic
+            return Interpreter.binaryOp(operator, a, b);
+        }
+
+        private static boolean isStringOperands(Object a, Object b) {
+            return a != null && b != null && (a instanceof String || b instanceof String);
+        }
+
+        private static IntBinaryOperator intOperation(String operator) {
+            return switch (operator) {
+                case "+" -> (a, b) -> a + b;
+                case "-" -> (a, b) -> a - b;
+                case "*" -> (a, b) -> a * b;
+                case "/" -> (a, b) -> {
+                    Interpreter.checkDivisor(b);
+                    return a / b;
+                };
+                case "%" -> (a, b) -> {
+                    Interpreter.checkDivisor(b);
+                    return a % b;
+                };
+                case "<" -> (a, b) -> a < b ? 1 : 0;
+                case ">" -> (a, b) -> a > b ? 1 : 0;
+                case "<=" -> (a, b) -> a <= b ? 1 : 0;
+                case ">=" -> (a, b) -> a >= b ? 1 : 0;
+                case "==" -> (a, b) -> a == b ? 1 : 0;
+                case "!=" -> (a, b) -> a != b ? 1 : 0;
+                default -> null;
+            };
+        }
+
+        private static BinaryOperator<Object> stringOperation(String operator) {
+            return switch (operator) {
+                case "+" -> (a, b) -> String.valueOf(a) + b;
+                case "==" -> (a, b) -> a.equals(b) ? 1 : 0;
+                case "!=" -> (a, b) -> a.equals(b) ? 0 : 1;
+                default -> null;
+            };
+        }
+    }
+
+    // Function call that caches the function it resolved
+    private final class CallNode implements Expr {
+        private final String name;
+        private final Expr[] args;
+        private CompiledFunction target;
+        private long targetVersion = -1;
+
+        CallNode(String name, Expr[] args) {
+            this.name = name;
+            this.args = args;
+        }
+
+        @Override
+        public Object evaluate(Frame frame) {
+            Object[] values = new Object[args.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = args[i].evaluate(frame);
+            }
+            if (targetVersion != functionsVersion) {
+                target = functions.get(name);
+                targetVersion = functionsVersion;
+            }
+            if (target == null) {
+                if (PRINT.equals(name)) {
+                    print(values);
+                    return null;
+                }
+                throw new Interpreter.InterpreterException("Undefined function " + name);
+            }
+            return target.call(values);
+        }
+    }
+
+    private final class CompiledFunction {
+        private final FuncDeclaration declaration;
+        private int[] paramSlots;
+        private int slotCount;
+        private Stmt body; // compiled on the first call, the body may be parsed lazily
+
+        CompiledFunction(FuncDeclaration declaration) {
+            this.declaration = declaration;
+        }
+
+        Object call(Object[] args) {
+            List<Identifier> params = declaration.getArgs();
+            if (params.size() != args.length) {
+                throw new Interpreter.InterpreterException("Function " + declaration.getIdentifier().getName() + " expects "
+                        + params.size() + " arguments, got " + args.length);
+            }
+            if (body == null) {
+                compile();
+            }
+            Frame frame = new Frame(slotCount);
+            for (int i = 0; i < args.length; i++) {
+                if (args[i] == null) {
+                    throw new Interpreter.InterpreterException("No value for argument " + params.get(i).getName());
+                }
+                frame.locals[paramSlots[i]] = args[i];
+            }
+            return body.execute(frame) ? frame.returned : null;
+        }
+
+        private void compile() {
+            Map<String, Integer> slots = new HashMap<>();
+            for (String name : PurityAnalyzer.localNames(declaration)) {
+                slots.put(name, slots.size());
+            }
+            List<Identifier> params = declaration.getArgs();
+            paramSlots = new int[params.size()];
+            for (int i = 0; i < paramSlots.length; i++) {
+                paramSlots[i] = slots.get(params.get(i).getName());
+            }
+            slotCount = slots.size();
+            body = compileStatement(declaration.getFuncBody(), slots);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package parser;
+
+// Resource budget of one Interpreter run, e.g. for programs from untrusted users.
+// A step is the execution of one statement or the evaluation of one expression.
+// maxMemoryBytes bounds the estimated size of the variables of all live frames, the memo caches and the printed output.
+// maxCallDepth bounds the nested function calls, so deep recursion fails before the Java stack overflows:
+// a call of a small function takes about 3 KB of a thread's stack, deeply nested blocks take more.
+public record ExecutionBudget(long maxSteps, long maxMemoryBytes, int maxCallDepth) {
+    public static final ExecutionBudget UNLIMITED = new ExecutionBudget(Long.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE);
+
+    // Reasonable budget for a small script in a shared service
+    public static final ExecutionBudget UNTRUSTED = new ExecutionBudget(10_000_000, 16L * 1024 * 1024, 200);
+
+    public enum Limit {
+        STEPS,
+        MEMORY,
+        CALL_DEPTH
+    }
+
+    public ExecutionBudget withMaxSteps(long maxSteps) {
+        return new ExecutionBudget(maxSteps, maxMemoryBytes, maxCallDepth);
+    }
+
+    public ExecutionBudget withMaxMemoryBytes(long maxMemoryBytes) {
+        return new ExecutionBudget(maxSteps, maxMemoryBytes, maxCallDepth);
+    }
+
+    public ExecutionBudget withMaxCallDepth(int maxCallDepth) {
+        return new ExecutionBudget(maxSteps, maxMemoryBytes, maxCallDepth);
+    }
+}
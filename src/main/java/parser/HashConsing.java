@@ -0,0 +1,48 @@
+package parser;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Hash-consing factory of AST nodes: a parsed subtree equal to an earlier one is replaced by the earlier instance.
+// The children are shared before their parent, so comparing a new node with a shared one takes O(1) per child.
+// Expressions, calls, assignments and returns are shared; blocks and function declarations are not,
+// so a lazy function body is never parsed just to be compared.
+// One factory can be used by the parsers of many files on one thread.
+public class HashConsing {
+    private final Map<Node, Node> nodes = new HashMap<>();
+    private long lookups = 0;
+    private long hits = 0;
+
+    @SuppressWarnings("unchecked")
+    <T extends Node> T intern(T node) {
+        if (!isShareable(node)) {
+            return node;
+        }
+        lookups++;
+        Node shared = nodes.putIfAbsent(node, node);
+        if (shared == null) {
+            return node;
+        }
+        hits++;
+        return (T) shared;
+    }
+
+    private static boolean isShareable(Node node) {
+        return node instanceof MathExpr || node instanceof FuncCall || node instanceof Assignment
+                || node instanceof ReturnStatement;
+    }
+
+    // Number of distinct shared nodes
+    public int size() {
+        return nodes.size();
+    }
+
+    public long lookups() {
+        return lookups;
+    }
+
+    // Number of nodes replaced by a shared one
+    public long hits() {
+        return hits;
+    }
+}
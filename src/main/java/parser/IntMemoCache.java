@@ -0,0 +1,84 @@
+package parser;
+
+// Bounded cache of int results of a pure function keyed by its int arguments.
+// The cache is direct-mapped: every argument tuple has one slot, a colliding tuple evicts the old one.
+// Keys and values are stored in primitive arrays, lookups don't allocate.
+class IntMemoCache {
+    static final long MISSING = Long.MIN_VALUE;
+
+    private final int arity;
+    private final int mask;
+    private final int[] keys; // arguments of the slot i are keys[i * arity, (i + 1) * arity)
+    private final int[] values;
+    private final boolean[] used;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    IntMemoCache(int arity, int capacity) {
+        int slots = Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1); // capacity rounded up to a power of two
+        this.arity = arity;
+        this.mask = slots - 1;
+        this.keys = new int[slots * arity];
+        this.values = new int[slots];
+        this.used = new boolean[slots];
+    }
+
+    // The cached result or MISSING
+    long get(int[] args) {
+        int slot = slot(args);
+        if (used[slot] && matches(slot, args)) {
+            hits++;
+            return values[slot];
+        }
+        misses++;
+        return MISSING;
+    }
+
+    void put(int[] args, int value) {
+        int slot = slot(args);
+        if (used[slot] && !matches(slot, args)) {
+            evictions++;
+        }
+        System.arraycopy(args, 0, keys, slot * arity, arity);
+        values[slot] = value;
+        used[slot] = true;
+    }
+
+    long hits() {
+        return hits;
+    }
+
+    long misses() {
+        return misses;
+    }
+
+    long evictions() {
+        return evictions;
+    }
+
+    // Size of the arrays of the cache
+    long allocatedBytes() {
+        return (long) keys.length * Integer.BYTES + (long) values.length * Integer.BYTES + used.length;
+    }
+
+    private boolean matches(int slot, int[] args) {
+        int offset = slot * arity;
+        for (int i = 0; i < arity; i++) {
+            if (keys[offset + i] != args[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int slot(int[] args) {
+        int hash = arity;
+        for (int arg : args) {
+            hash = 31 * hash + arg;
+        }
+        hash *= 0x9E3779B9; // spread consecutive arguments over the table
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,376 @@
+package parser;
+
+import java.io.PrintStream;
+import java.util.*;
+
+// Tree-walking interpreter of the AST.
+// Values are Integer and String. Top-level assignments write global variables, inside a function
+// the parameters and all variables assigned in the function are local, other names are global.
+// Functions are registered when their declaration is executed, print is the only built-in function.
+// If main() is declared, it is called after the top-level statements.
+// Calls of pure int functions (see PurityAnalyzer) with int arguments are memoized.
+// The steps, the estimated memory and the call depth of a run are limited by the ExecutionBudget.
+public class Interpreter {
+    public static final int DEFAULT_MEMO_CAPACITY = 4096;
+    private static final String MAIN = "main";
+    private static final String PRINT = "print";
+    // Estimated sizes of values and structures for the memory budget
+    private static final long INT_BYTES = 16;
+    private static final long STRING_BYTES = 40; // plus 2 bytes per char
+    private static final long VARIABLE_BYTES = 32; // hash map entry
+    private static final long FRAME_BYTES = 128;
+
+    private final PrintStream out;
+    private final int memoCapacity; // slots in the cache of every pure function, 0 disables memoization
+    private final ExecutionBudget budget;
+    private long steps = 0;
+    private int callDepth = 0; // function calls in progress
+    private long memoryBytes = 0; // estimated size of the live variables, memo caches and printed output
+    private final Map<String, Object> globals = new HashMap<>();
+    private final Map<String, FuncDeclaration> functions = new HashMap<>();
+    private final Map<FuncDeclaration, Set<String>> localNames = new IdentityHashMap<>();
+    private final Map<FuncDeclaration, IntMemoCache> memoCaches = new IdentityHashMap<>();
+    private Set<String> pureFunctions = Set.of();
+
+    public record MemoMetrics(long hits, long misses, long evictions) {
+        public double hitRate() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+    }
+
+    // Local variables of the function call
+    private record Frame(Set<String> localNames, Map<String, Object> locals) {
+    }
+
+    // The value of the executed return statement
+    private record Returned(Object value) {
+    }
+
+    public Interpreter(PrintStream out) {
+        this(out, DEFAULT_MEMO_CAPACITY);
+    }
+
+    public Interpreter(PrintStream out, int memoCapacity) {
+        this(out, memoCapacity, ExecutionBudget.UNLIMITED);
+    }
+
+    public Interpreter(PrintStream out, int memoCapacity, ExecutionBudget budget) {
+        this.out = out;
+        this.memoCapacity = memoCapacity;
+        this.budget = budget;
+    }
+
+    public void run(Program program) {
+        if (memoCapacity > 0) {
+            pureFunctions = PurityAnalyzer.pureFunctions(program);
+        }
+        for (Node node : program.getNodes()) {
+            if (node instanceof Statement statement) {
+                execute(statement, null);
+            } else if (node instanceof Block block) {
+                execute(block, null);
+            }
+        }
+        FuncDeclaration main = functions.get(MAIN);
+        if (main != null && main.getArgs().isEmpty()) {
+            call(main, List.of());
+        }
+    }
+
+    public Object getGlobal(String name) {
+        return globals.get(name);
+    }
+
+    public long steps() {
+        return steps;
+    }
+
+    public long memoryBytes() {
+        return memoryBytes;
+    }
+
+    public MemoMetrics memoMetrics() {
+        long hits = 0;
+        long misses = 0;
+        long evictions = 0;
+        for (IntMemoCache cache : memoCaches.values()) {
+            hits += cache.hits();
+            misses += cache.misses();
+            evictions += cache.evictions();
+        }
+        return new MemoMetrics(hits, misses, evictions);
+    }
+
+    public Map<String, MemoMetrics> memoMetricsByFunction() {
+        Map<String, MemoMetrics> metrics = new TreeMap<>();
+        memoCaches.forEach((function, cache) -> metrics.merge(function.getIdentifier().getName(),
+                new MemoMetrics(cache.hits(), cache.misses(), cache.evictions()),
+                (a, b) -> new MemoMetrics(a.hits() + b.hits(), a.misses() + b.misses(), a.evictions() + b.evictions())));
+        return metrics;
+    }
+
+    // Returns Returned if a return statement was executed, otherwise null. frame is null at the top level
+    private Returned execute(Node node, Frame frame) {
+        step();
+        switch (node) {
+            case null -> {
+            }
+            case Block block -> {
+                for (Statement statement : block.getStatements()) {
+                    Returned returned = execute(statement, frame);
+                    if (returned != null) {
+                        return returned;
+                    }
+                }
+            }
+            case FuncDeclaration function -> functions.put(function.getIdentifier().getName(), function);
+            case Assignment assignment -> {
+                Object value = evaluate(assignment.getExpr(), frame);
+                if (value == null) {
+                    throw new InterpreterException("No value to assign to " + assignment.getIdentifier().getName());
+                }
+                write(assignment.getIdentifier().getName(), value, frame);
+            }
+            case IfStatement ifStatement -> {
+                if (isTrue(evaluate(ifStatement.getCondition(), frame))) {
+                    return execute(ifStatement.getThenBlock(), frame);
+                } else {
+                    return execute(ifStatement.getElseBlock(), frame);
+                }
+            }
+            case ReturnStatement returnStatement -> {
+                if (frame == null) {
+                    throw new InterpreterException("Return outside of function");
+                }
+                return new Returned(evaluate(returnStatement.getExpression(), frame));
+            }
+            case Statement statement -> evaluate(statement, frame); // function call or expression
+            default -> throw new InterpreterException("Unexpected node " + node.getClass().getSimpleName());
+        }
+        return null;
+    }
+
+    // Value of the expression, null for calls of functions without a returned value
+    private Object evaluate(Statement expr, Frame frame) {
+        step();
+        return switch (expr) {
+            case IntLiteral literal -> literal.getValue();
+            case StringLiteral literal -> unquote(literal.getValue());
+            case Identifier identifier -> read(identifier.getName(), frame);
+            case BinaryOp binaryOp -> {
+                Object left = evaluate(binaryOp.getLeft(), frame);
+                Object right = evaluate(binaryOp.getRight(), frame);
+                if ("+".equals(binaryOp.getOperator()) && (left instanceof String || right instanceof String)) {
+                    // the concatenation must fit in the budget before it is built
+                    checkMemory(STRING_BYTES + 2L * (String.valueOf(left).length() + String.valueOf(right).length()));
+                }
+                yield binaryOp(binaryOp.getOperator(), left, right);
+            }
+            case FuncCall call -> call(call, frame);
+            default -> throw new InterpreterException("Unexpected expression " + expr.getClass().getSimpleName());
+        };
+    }
+
+    private Object call(FuncCall call, Frame frame) {
+        String name = call.getIdentifier().getName();
+        List<Object> args = new ArrayList<>(call.getArgs().size());
+        for (MathExpr arg : call.getArgs()) {
+            args.add(evaluate(arg, frame));
+        }
+        FuncDeclaration function = functions.get(name);
+        if (function == null) {
+            if (PRINT.equals(name)) {
+                print(args);
+                return null;
+            }
+            throw new InterpreterException("Undefined function " + name);
+        }
+        if (pureFunctions.contains(name)) {
+            int[] intArgs = toInts(args);
+            if (intArgs != null) {
+                return callMemoized(function, args, intArgs);
+            }
+        }
+        return call(function, args);
+    }
+
+    private Object callMemoized(FuncDeclaration function, List<Object> args, int[] intArgs) {
+        IntMemoCache cache = memoCaches.get(function);
+        if (cache == null) {
+            cache = new IntMemoCache(intArgs.length, memoCapacity);
+            charge(cache.allocatedBytes());
+            memoCaches.put(function, cache);
+        }
+        long cached = cache.get(intArgs);
+        if (cached != IntMemoCache.MISSING) {
+            return (int) cached;
+        }
+        Object result = call(function, args);
+        if (result instanceof Integer value) {
+            cache.put(intArgs, value);
+        }
+        return result;
+    }
+
+    private Object call(FuncDeclaration function, List<Object> args) {
+        List<Identifier> params = function.getArgs();
+        if (params.size() != args.size()) {
+            throw new InterpreterException("Function " + function.getIdentifier().getName() + " expects "
+                    + params.size() + " arguments, got " + args.size());
+        }
+        if (callDepth == budget.maxCallDepth()) {
+            throw new BudgetExceededException(ExecutionBudget.Limit.CALL_DEPTH, budget.maxCallDepth());
+        }
+        Frame frame = new Frame(localNames.computeIfAbsent(function, PurityAnalyzer::localNames), new HashMap<>());
+        charge(FRAME_BYTES);
+        callDepth++;
+        try {
+            for (int i = 0; i < params.size(); i++) {
+                if (args.get(i) == null) {
+                    throw new InterpreterException("No value for argument " + params.get(i).getName());
+                }
+                write(params.get(i).getName(), args.get(i), frame);
+            }
+            Returned returned = execute(function.getFuncBody(), frame);
+            return returned != null ? returned.value() : null;
+        } finally {
+            callDepth--;
+            long frameBytes = FRAME_BYTES;
+            for (Object value : frame.locals().values()) {
+                frameBytes += VARIABLE_BYTES + sizeOf(value);
+            }
+            memoryBytes -= frameBytes; // the frame is released
+        }
+    }
+
+    private Object read(String name, Frame frame) {
+        Object value = frame != null && frame.localNames().contains(name) ? frame.locals().get(name) : globals.get(name);
+        if (value == null) {
+            throw new InterpreterException("Undefined variable " + name);
+        }
+        return value;
+    }
+
+    private void write(String name, Object value, Frame frame) {
+        Map<String, Object> variables = frame != null ? frame.locals() : globals;
+        Object old = variables.get(name);
+        charge(sizeOf(value) - (old != null ? sizeOf(old) : -VARIABLE_BYTES));
+        variables.put(name, value);
+    }
+
+    private void print(List<Object> args) {
+        StringJoiner line = new StringJoiner(" ");
+        for (Object arg : args) {
+            line.add(String.valueOf(arg));
+        }
+        charge(line.length() + 1L); // the output is kept by the caller
+        out.println(line);
+    }
+
+    private void step() {
+        if (steps == budget.maxSteps()) {
+            throw new BudgetExceededException(ExecutionBudget.Limit.STEPS, budget.maxSteps());
+        }
+        steps++;
+    }
+
+    private void checkMemory(long bytes) {
+        if (memoryBytes + bytes > budget.maxMemoryBytes()) {
+            throw new BudgetExceededException(ExecutionBudget.Limit.MEMORY, budget.maxMemoryBytes());
+        }
+    }
+
+    private void charge(long bytes) {
+        checkMemory(bytes);
+        memoryBytes += bytes;
+    }
+
+    private static long sizeOf(Object value) {
+        return value instanceof String string ? STRING_BYTES + 2L * string.length() : INT_BYTES;
+    }
+
+    static Object binaryOp(String operator, Object left, Object right) {
+        if (left == null || right == null) {
+            throw new InterpreterException("No value for operator " + operator);
+        }
+        if (left instanceof Integer a && right instanceof Integer b) {
+            return switch (operator) {
+                case "+" -> a + b;
+                case "-" -> a - b;
+                case "*" -> a * b;
+                case "/" -> {
+                    checkDivisor(b);
+                    yield a / b;
+                }
+                case "%" -> {
+                    checkDivisor(b);
+                    yield a % b;
+                }
+                case "<" -> a < b ? 1 : 0;
+                case ">" -> a > b ? 1 : 0;
+                case "<=" -> a <= b ? 1 : 0;
+                case ">=" -> a >= b ? 1 : 0;
+                case "==" -> a.intValue() == b.intValue() ? 1 : 0;
+                case "!=" -> a.intValue() != b.intValue() ? 1 : 0;
+                default -> throw new InterpreterException("Unsupported operator " + operator);
+            };
+        }
+        return switch (operator) {
+            case "+" -> String.valueOf(left) + right; // string concatenation
+            case "==" -> left.equals(right) ? 1 : 0;
+            case "!=" -> left.equals(right) ? 0 : 1;
+            default -> throw new InterpreterException("Unsupported operator " + operator + " for strings");
+        };
+    }
+
+    static boolean isTrue(Object condition) {
+        if (condition instanceof Integer value) {
+            return value != 0;
+        }
+        if (condition instanceof String value) {
+            return !value.isEmpty();
+        }
+        throw new InterpreterException("No value for condition");
+    }
+
+    static String unquote(String literal) {
+        return literal.substring(1, literal.length() - 1);
+    }
+
+    static void checkDivisor(int divisor) {
+        if (divisor == 0) {
+            throw new InterpreterException("Division by zero");
+        }
+    }
+
+    // Int arguments or null if some argument isn't int
+    private static int[] toInts(List<Object> args) {
+        int[] ints = new int[args.size()];
+        for (int i = 0; i < ints.length; i++) {
+            if (!(args.get(i) instanceof Integer value)) {
+                return null;
+            }
+            ints[i] = value;
+        }
+        return ints;
+    }
+
+    public static class InterpreterException extends RuntimeException {
+        public InterpreterException(String message) {
+            super(message);
+        }
+    }
+
+    public static class BudgetExceededException extends InterpreterException {
+        private final ExecutionBudget.Limit limit;
+
+        public BudgetExceededException(ExecutionBudget.Limit limit, long max) {
+            super("Execution budget exceeded: " + limit + " (max " + max + ")");
+            this.limit = limit;
+        }
+
+        public ExecutionBudget.Limit getLimit() {
+            return limit;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package parser;
+
+import lexer.OffHeapTokens;
+import utils.OffHeapCharList;
+import utils.OffHeapIntList;
+
+import java.lang.foreign.Arena;
+import java.util.ArrayList;
+import java.util.List;
+
+// Program whose AST is stored off-heap in memory allocated from its own arena.
+// The tokens are kept off-heap while parsing and every top-level node is moved off-heap as soon as it is parsed,
+// so apart from the input code String the Java heap holds only the node being parsed.
+// Heap nodes are created again on access.
+// The memory is released when the program is closed, a closed program can't be read.
+public class OffHeapProgram implements AutoCloseable {
+    // Node record: kind and up to 4 fields, the fields are values or indices of nodes, lists and strings
+    private static final int RECORD_INTS = 5;
+    private static final int NONE = -1; // null node
+
+    private enum Kind {
+        IDENTIFIER, BLOCK, FUNC_DECLARATION, FUNC_CALL, ASSIGNMENT, BINARY_OP,
+        STRING_LITERAL, INT_LITERAL, IF_STATEMENT, RETURN_STATEMENT
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private final Arena arena;
+    private final OffHeapIntList records; // node records
+    private final OffHeapIntList lists; // lists of nodes: size, then the node indices
+    private final OffHeapIntList listStarts; // start of every list in lists (two ints)
+    private final OffHeapCharList text;
+    private final OffHeapIntList strings; // length and start of every string in text (three ints: the length and the start as a long)
+    private final OffHeapIntList roots; // top-level nodes
+
+    private OffHeapProgram(Arena arena) {
+        this.arena = arena;
+        this.records = new OffHeapIntList(arena);
+        this.lists = new OffHeapIntList(arena);
+        this.listStarts = new OffHeapIntList(arena);
+        this.text = new OffHeapCharList(arena);
+        this.strings = new OffHeapIntList(arena);
+        this.roots = new OffHeapIntList(arena);
+    }
+
+    // shared -- the program can be read from any thread, otherwise only from the parsing one
+    public static OffHeapProgram parse(String src, boolean shared) {
+        return parse(src, shared, ParseLimits.UNLIMITED, new CancellationToken());
+    }
+
+    public static OffHeapProgram parse(String src, boolean shared, ParseLimits limits, CancellationToken cancellation) {
+        Parser.checkSourceSize(src, limits);
+        OffHeapProgram program = new OffHeapProgram(shared ? Arena.ofShared() : Arena.ofConfined());
+        try (Arena tokensArena = Arena.ofConfined()) {
+            OffHeapTokens tokens = OffHeapTokens.lex(src, tokensArena);
+            Parser.fromTokens(tokens, false, limits, cancellation).parse(node -> program.roots.add(program.write(node)));
+        } catch (RuntimeException e) {
+            program.close();
+            throw e;
+        }
+        return program;
+    }
+
+    // Number of top-level nodes
+    public long size() {
+        return roots.size();
+    }
+
+    public long nodeCount() {
+        return records.size() / RECORD_INTS;
+    }
+
+    // Off-heap memory allocated for the AST
+    public long allocatedBytes() {
+        return records.allocatedBytes() + lists.allocatedBytes() + listStarts.allocatedBytes()
+                + text.allocatedBytes() + strings.allocatedBytes() + roots.allocatedBytes();
+    }
+
+    // Heap copy of the top-level node
+    Node getRoot(long index) {
+        return read(roots.get(index));
+    }
+
+    // Heap copy of the whole AST
+    public Program toProgram() {
+        List<Node> nodes = new ArrayList<>();
+        for (long i = 0; i < roots.size(); i++) {
+            nodes.add(getRoot(i));
+        }
+        return new Program(nodes);
+    }
+
+    @Override
+    public String toString() {
+        return toProgram().toString(0);
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    private int write(Node node) {
+        return switch (node) {
+            case null -> NONE;
+            case Identifier identifier -> record(Kind.IDENTIFIER, string(identifier.getName()), NONE, NONE, NONE);
+            case Block block -> record(Kind.BLOCK, list(block.getStatements()), NONE, NONE, NONE);
+            case FuncDeclaration function -> record(Kind.FUNC_DECLARATION, string(function.getType()),
+                    write(function.getIdentifier()), list(function.getArgs()), write(function.getFuncBody()));
+            case FuncCall call -> record(Kind.FUNC_CALL, write(call.getIdentifier()), list(call.getArgs()), NONE, NONE);
+            case Assignment assignment -> record(Kind.ASSIGNMENT, write(assignment.getIdentifier()),
+                    write(assignment.getExpr()), NONE, NONE);
+            case BinaryOp binaryOp -> record(Kind.BINARY_OP, write(binaryOp.getLeft()), string(binaryOp.getOperator()),
+                    write(binaryOp.getRight()), NONE);
+            case StringLiteral literal -> record(Kind.STRING_LITERAL, string(literal.getValue()), NONE, NONE, NONE);
+            case IntLiteral literal -> record(Kind.INT_LITERAL, literal.getValue(), NONE, NONE, NONE);
+            case IfStatement ifStatement -> record(Kind.IF_STATEMENT, write(ifStatement.getCondition()),
+                    write(ifStatement.getThenBlock()), write(ifStatement.getElseBlock()), NONE);
+            case ReturnStatement returnStatement -> record(Kind.RETURN_STATEMENT, write(returnStatement.getExpression()),
+                    NONE, NONE, NONE);
+            default -> throw new IllegalArgumentException("Unknown node: " + node.getClass().getSimpleName());
+        };
+    }
+
+    private int record(Kind kind, int a, int b, int c, int d) {
+        int index = Math.toIntExact(nodeCount());
+        records.add(kind.ordinal());
+        records.add(a);
+        records.add(b);
+        records.add(c);
+        records.add(d);
+        return index;
+    }
+
+    private int list(List<? extends Node> nodes) {
+        int[] indices = new int[nodes.size()]; // the children are written first, their lists go before this one
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = write(nodes.get(i));
+        }
+        int index = Math.toIntExact(listStarts.size() / 2);
+        listStarts.addLong(lists.add(indices.length));
+        for (int child : indices) {
+            lists.add(child);
+        }
+        return index;
+    }
+
+    private int string(String value) {
+        int index = Math.toIntExact(strings.size() / 3);
+        strings.add(value.length());
+        strings.addLong(text.add(value));
+        return index;
+    }
+
+    private Node read(int node) {
+        if (node == NONE) {
+            return null;
+        }
+        long record = (long) node * RECORD_INTS;
+        int a = records.get(record + 1);
+        int b = records.get(record + 2);
+        int c = records.get(record + 3);
+        int d = records.get(record + 4);
+        return switch (KINDS[records.get(record)]) {
+            case IDENTIFIER -> new Identifier(readString(a));
+            case BLOCK -> new Block(readList(a));
+            case FUNC_DECLARATION -> new FuncDeclaration(readString(a), (Identifier) read(b), readList(c), (Block) read(d));
+            case FUNC_CALL -> new FuncCall((Identifier) read(a), readList(b));
+            case ASSIGNMENT -> new Assignment((Identifier) read(a), (Statement) read(b));
+            case BINARY_OP -> new BinaryOp((MathExpr) read(a), readString(b), (MathExpr) read(c));
+            case STRING_LITERAL -> new StringLiteral(readString(a));
+            case INT_LITERAL -> new IntLiteral(a);
+            case IF_STATEMENT -> new IfStatement((MathExpr) read(a), (Block) read(b), (Block) read(c));
+            case RETURN_STATEMENT -> new ReturnStatement((MathExpr) read(a));
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Node> List<T> readList(int list) {
+        long start = listStarts.getLong((long) list * 2);
+        int size = lists.get(start);
+        List<T> nodes = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            nodes.add((T) read(lists.get(start + i)));
+        }
+        return nodes;
+    }
+
+    private String readString(int string) {
+        long entry = (long) string * 3;
+        return text.get(strings.getLong(entry + 1), strings.get(entry));
+    }
+}
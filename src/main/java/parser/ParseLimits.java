@@ -0,0 +1,41 @@
+package parser;
+
+// Resource limits of one parse, e.g. for programs from untrusted users.
+// maxSourceBytes is the size of the input code in UTF-8, timeoutMillis is counted from the start of Parser.parse().
+// Lazy function bodies parsed later get the rest of the limits of their parse: the rest of the nodes and of the time
+// (spent only while parsing) and the nesting depth of their declaration; their tokens were counted when they were skipped.
+// The limits are checked between tokens: one token is at most maxSourceBytes long and is lexed in linear time.
+public record ParseLimits(long maxSourceBytes, long maxTokens, int maxNestingDepth, long maxNodes, long timeoutMillis) {
+    public static final ParseLimits UNLIMITED = new ParseLimits(Long.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    // Reasonable limits for a shared service
+    public static final ParseLimits UNTRUSTED = new ParseLimits(10L * 1024 * 1024, 2_000_000, 200, 2_000_000, 5_000);
+
+    public enum Limit {
+        SOURCE_BYTES,
+        TOKENS,
+        NESTING_DEPTH,
+        AST_NODES,
+        DEADLINE
+    }
+
+    public ParseLimits withMaxSourceBytes(long maxSourceBytes) {
+        return new ParseLimits(maxSourceBytes, maxTokens, maxNestingDepth, maxNodes, timeoutMillis);
+    }
+
+    public ParseLimits withMaxTokens(long maxTokens) {
+        return new ParseLimits(maxSourceBytes, maxTokens, maxNestingDepth, maxNodes, timeoutMillis);
+    }
+
+    public ParseLimits withMaxNestingDepth(int maxNestingDepth) {
+        return new ParseLimits(maxSourceBytes, maxTokens, maxNestingDepth, maxNodes, timeoutMillis);
+    }
+
+    public ParseLimits withMaxNodes(long maxNodes) {
+        return new ParseLimits(maxSourceBytes, maxTokens, maxNestingDepth, maxNodes, timeoutMillis);
+    }
+
+    public ParseLimits withTimeoutMillis(long timeoutMillis) {
+        return new ParseLimits(maxSourceBytes, maxTokens, maxNestingDepth, maxNodes, timeoutMillis);
+    }
+}
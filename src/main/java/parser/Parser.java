@@ -3,63 +3,51 @@ package parser;
 import lexer.Lexer;
 import lexer.Token;
 import lexer.TokenType;
+import lexer.Utf8Lexer;
 import utils.FileUtils;
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 // The node of the abstract syntax tree (AST)
 interface Node {
     String toString(int offset);
 }
 
-class Program implements Node {
-    private final List<Node> nodes;
+// Identifier Node for names of functions and names of variables
+class Identifier implements MathExpr {
+    private final String name;
+    private int hash; // cached hash code, 0 until computed
 
-    Program(List<Node> nodes) {
-        this.nodes = nodes;
+    Identifier(String name) {
+        this.name = name;
     }
 
+    String getName() {
+        return name;
+    }
 
     @Override
-    public String toString(int offset) {
-        StringBuilder sb = new StringBuilder();
-        String curOffset = Parser.getCurOffset(offset);
-        if (nodes.isEmpty()) {
-            return "";
-        }
-        sb.append(curOffset).append("Program:\n");
-        for (Node node : nodes) {
-            switch (node) {
-                case Block block -> {
-                    // print Blocks
-                    sb.append(curOffset).append("  Block:\n");
-                    sb.append(block.toString(offset + 2));
-                }
-                case FuncDeclaration funcDeclaration -> {
-                    // print Functions
-                    sb.append(curOffset).append("  Function:\n");
-                    sb.append(funcDeclaration.toString(offset + 2));
-                }
-                case Statement statement -> {
-                    // print Statements
-                    sb.append(curOffset).append("  Statement:\n");
-                    sb.append(statement.toString(offset + 2));
-                }
-                case null, default -> {
-                }
-            }
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
         }
-        return sb.toString();
+        return o instanceof Identifier other && hashCode() == other.hashCode()
+                && Objects.equals(name, other.name);
     }
-}
 
-// Identifier Node for names of functions and names of variables
-class Identifier implements MathExpr {
-    private final String name;
-
-    Identifier(String name) {
-        this.name = name;
+    @Override
+    public int hashCode() {
+        if (hash == 0) {
+            hash = Objects.hashCode(name);
+        }
+        return hash;
     }
 
     @Override
@@ -75,11 +63,33 @@ class Identifier implements MathExpr {
 class Block implements Node {
     // Block consists from statements separated by ;
     private final List<Statement> statements;
+    private int hash; // cached hash code, 0 until computed
 
     Block(List<Statement> statements) {
         this.statements = statements;
     }
 
+    List<Statement> getStatements() {
+        return statements;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Block other && hashCode() == other.hashCode()
+                && Objects.equals(statements, other.statements);
+    }
+
+    @Override
+    public int hashCode() {
+        if (hash == 0) {
+            hash = Objects.hashCode(statements);
+        }
+        return hash;
+    }
+
     @Override
     public String toString(int offset) {
         StringBuilder sb = new StringBuilder();
@@ -104,13 +114,100 @@ class FuncDeclaration implements Statement {
     private final String type; // void or int
     private final Identifier identifier; // name of function
     private final List<Identifier> args; // function arguments
-    private final Block funcBody; // function body
+    private volatile Block funcBody; // function body, null while it is still unparsed
+    private final List<Token> bodyTokens; // body tokens from '{' to the matching '}' (lazy mode), kept for equality
+    private Parser.Budget budget; // limits of the parse the lazy body belongs to, null after parsing
+    private final int nestingDepth; // nesting depth of the lazy body's '{'
+    private int hash; // cached hash code, 0 until computed
 
     FuncDeclaration(String type, Identifier identifier, List<Identifier> args, Block funcBody) {
         this.type = type;
         this.identifier = identifier;
         this.args = args;
         this.funcBody = funcBody;
+        this.bodyTokens = null;
+        this.nestingDepth = 0;
+    }
+
+    // Lazy declaration: the body is parsed from its tokens on the first access
+    FuncDeclaration(String type, Identifier identifier, List<Identifier> args, List<Token> bodyTokens,
+                    Parser.Budget budget, int nestingDepth) {
+        this.type = type;
+        this.identifier = identifier;
+        this.args = args;
+        this.bodyTokens = bodyTokens;
+        this.budget = budget;
+        this.nestingDepth = nestingDepth;
+    }
+
+    String getType() {
+        return type;
+    }
+
+    Identifier getIdentifier() {
+        return identifier;
+    }
+
+    List<Identifier> getArgs() {
+        return args;
+    }
+
+    // A lazy body is parsed once even if several threads access it, the parsed body is published by the volatile field
+    Block getFuncBody() {
+        Block body = funcBody;
+        return body != null ? body : parseFuncBody();
+    }
+
+    private synchronized Block parseFuncBody() {
+        if (funcBody == null) {
+            funcBody = Parser.parseLazyBody(bodyTokens, budget, nestingDepth);
+            budget = null;
+        }
+        return funcBody;
+    }
+
+    boolean isBodyParsed() {
+        return funcBody != null;
+    }
+
+    // Tokens of the lazy body, also after parsing; null for an eagerly parsed declaration
+    List<Token> getBodyTokens() {
+        return bodyTokens;
+    }
+
+    // Lazy bodies are compared by their token types and reprs whether they are parsed or not, so equality doesn't
+    // change when a body is parsed and a body is never parsed to be compared. A lazy declaration is never equal to an
+    // eagerly parsed one. The body isn't hashed for the same reason
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof FuncDeclaration other && hashCode() == other.hashCode()
+                && Objects.equals(type, other.type) && Objects.equals(identifier, other.identifier)
+                && Objects.equals(args, other.args) && (bodyTokens == null) == (other.bodyTokens == null)
+                && (bodyTokens != null ? sameTokens(bodyTokens, other.bodyTokens) : funcBody.equals(other.funcBody));
+    }
+
+    @Override
+    public int hashCode() {
+        if (hash == 0) {
+            hash = Objects.hash(type, identifier, args);
+        }
+        return hash;
+    }
+
+    // Positions are ignored as in the nodes
+    private static boolean sameTokens(List<Token> a, List<Token> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i).type() != b.get(i).type() || !a.get(i).repr().equals(b.get(i).repr())) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -130,7 +227,7 @@ class FuncDeclaration implements Statement {
             }
         }
         sb.append(curOffset).append("  Body: \n");
-        sb.append(funcBody.toString(offset + 2));
+        sb.append(getFuncBody().toString(offset + 2));
         return sb.toString();
     }
 
@@ -140,12 +237,38 @@ class FuncDeclaration implements Statement {
 class FuncCall implements Statement {
     private final Identifier identifier; // name of function
     private final List<MathExpr> args; // function arguments
+    private int hash; // cached hash code, 0 until computed
 
     FuncCall(Identifier identifier, List<MathExpr> args) {
         this.identifier = identifier;
         this.args = args;
     }
 
+    Identifier getIdentifier() {
+        return identifier;
+    }
+
+    List<MathExpr> getArgs() {
+        return args;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof FuncCall other && hashCode() == other.hashCode()
+                && Objects.equals(identifier, other.identifier) && Objects.equals(args, other.args);
+    }
+
+    @Override
+    public int hashCode() {
+        if (hash == 0) {
+            hash = Objects.hash(identifier, args);
+        }
+        return hash;
+    }
+
     @Override
     public String toString(int offset) {
         String curOffset = Parser.getCurOffset(offset);
@@ -164,12 +287,38 @@ class FuncCall implements Statement {
 class Assignment implements Statement {
     private final Identifier identifier; // the left side of assignment
     private final Statement expr; // the right side of assignment
+    private int hash; // cached hash code, 0 until computed
 
     Assignment(Identifier identifier, Statement expr) {
         this.identifier = identifier;
         this.expr = expr;
     }
 
+    Identifier getIdentifier() {
+        return identifier;
+    }
+
+    Statement getExpr() {
+        return expr;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Assignment other && hashCode() == other.hashCode()
+                && Objects.equals(identifier, other.identifier) && Objects.equals(expr, other.expr);
+    }
+
+    @Override
+    public int hashCode() {
+        if (hash == 0) {
+            hash = Objects.hash(identifier, expr);
+        }
+        return hash;
+    }
+
     @Override
     public String toString(int offset) {
         StringBuilder sb = new StringBuilder();
@@ -190,6 +339,7 @@ class BinaryOp implements MathExpr {
     private final MathExpr left;
     private final String operator; // arithmetic operations or comparison operations
     private final MathExpr right;
+    private int hash; // cached hash code, 0 until computed
 
     BinaryOp(MathExpr left, String operator, MathExpr right) {
         this.left = left;
@@ -197,6 +347,36 @@ class BinaryOp implements MathExpr {
         this.right = right;
     }
 
+    MathExpr getLeft() {
+        return left;
+    }
+
+    String getOperator() {
+        return operator;
+    }
+
+    MathExpr getRight() {
+        return right;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof BinaryOp other && hashCode() == other.hashCode()
+                && Objects.equals(left, other.left) && Objects.equals(operator, other.operator)
+                && Objects.equals(right, other.right);
+    }
+
+    @Override
+    public int hashCode() {
+        if (hash == 0) {
+            hash = Objects.hash(left, operator, right);
+        }
+        return hash;
+    }
+
     @Override
     public String toString(int offset) {
         String curOffset = Parser.getCurOffset(offset);
@@ -212,11 +392,33 @@ interface Literal extends MathExpr {
 
 class StringLiteral implements Literal {
     private final String value;
+    private int hash; // cached hash code, 0 until computed
 
     StringLiteral(String value) {
         this.value = value;
     }
 
+    String getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof StringLiteral other && hashCode() == other.hashCode()
+                && Objects.equals(value, other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        if (hash == 0) {
+            hash = Objects.hashCode(value);
+        }
+        return hash;
+    }
+
     @Override
     public String toString(int offset) {
         StringBuilder sb = new StringBuilder();
@@ -228,11 +430,33 @@ class StringLiteral implements Literal {
 
 class IntLiteral implements Literal {
     private final int value;
+    private int hash; // cached hash code, 0 until computed
 
     IntLiteral(int value) {
         this.value = value;
     }
 
+    int getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof IntLiteral other && hashCode() == other.hashCode()
+                && value == other.value;
+    }
+
+    @Override
+    public int hashCode() {
+        if (hash == 0) {
+            hash = Integer.hashCode(value);
+        }
+        return hash;
+    }
+
     @Override
     public String toString(int offset) {
         StringBuilder sb = new StringBuilder();
@@ -247,6 +471,7 @@ class IfStatement implements Statement {
     private final MathExpr condition; // the condition of the if statement
     private final Block thenBlock;
     private final Block elseBlock;    // can be null
+    private int hash; // cached hash code, 0 until computed
 
     IfStatement(MathExpr condition, Block thenBlock, Block elseBlock) {
         this.condition = condition;
@@ -254,6 +479,36 @@ class IfStatement implements Statement {
         this.elseBlock = elseBlock;
     }
 
+    MathExpr getCondition() {
+        return condition;
+    }
+
+    Block getThenBlock() {
+        return thenBlock;
+    }
+
+    Block getElseBlock() {
+        return elseBlock;
+    }
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof IfStatement other && hashCode() == other.hashCode()
+                && Objects.equals(condition, other.condition) && Objects.equals(thenBlock, other.thenBlock)
+                && Objects.equals(elseBlock, other.elseBlock);
+    }
+
+    @Override
+    public int hashCode() {
+        if (hash == 0) {
+            hash = Objects.hash(condition, thenBlock, elseBlock);
+        }
+        return hash;
+    }
 
     @Override
     public String toString(int offset) {
@@ -274,11 +529,33 @@ class IfStatement implements Statement {
 // ReturnStatement Node for the return value of the function
 class ReturnStatement implements Statement {
     private final MathExpr expression;
+    private int hash; // cached hash code, 0 until computed
 
     ReturnStatement(MathExpr expression) {
         this.expression = expression;
     }
 
+    MathExpr getExpression() {
+        return expression;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof ReturnStatement other && hashCode() == other.hashCode()
+                && Objects.equals(expression, other.expression);
+    }
+
+    @Override
+    public int hashCode() {
+        if (hash == 0) {
+            hash = Objects.hashCode(expression);
+        }
+        return hash;
+    }
+
     @Override
     public String toString(int offset) {
         StringBuilder sb = new StringBuilder();
@@ -290,21 +567,129 @@ class ReturnStatement implements Statement {
 }
 
 public class Parser {
+    private static final int DEADLINE_CHECK_INTERVAL = 64; // tokens between the clock reads, a power of two
+
     private Token curToken;
     private Token nextToken;
     private final Iterator<Token> tokens;
+    private final boolean lazyFunctionBodies; // skip function bodies and parse them on the first access
+    private final ParseLimits limits;
+    private final CancellationToken cancellation;
+    private final Budget budget;
+    private final long maxTokens; // no limit for a lazy body, its tokens were counted when it was skipped
+    private long tokenCount = 0;
+    private HashConsing hashConsing = null; // shares equal subtrees if set
+    private SourcePositions positions = null; // records positions of identifiers and literals if set
+    private int nestingDepth;
     private Program program;
 
+    // Node count and time of one parse, shared with the parsers of its lazy function bodies, so the limits apply
+    // to the whole input even if the bodies are parsed later. The time is spent only while some of the parsers run.
+    // Lazy bodies are parsed under the lock of the budget, so the bodies of one parse may be parsed on any threads
+    // once the parse has returned.
+    static final class Budget {
+        private final ParseLimits limits;
+        private final CancellationToken cancellation;
+        private final boolean hasDeadline;
+        private long nodeCount = 0;
+        private long remainingNanos; // time left while no parser runs
+        private long deadline = 0; // System.nanoTime() of the deadline while some parser runs
+        private int running = 0; // running parsers, a lazy body may be parsed while the input is still parsed
+
+        Budget(ParseLimits limits, CancellationToken cancellation) {
+            this.limits = limits;
+            this.cancellation = cancellation;
+            this.hasDeadline = limits.timeoutMillis() != Long.MAX_VALUE;
+            this.remainingNanos = hasDeadline ? TimeUnit.MILLISECONDS.toNanos(limits.timeoutMillis()) : 0;
+        }
+
+        private void start() {
+            if (running++ == 0 && hasDeadline) {
+                deadline = System.nanoTime() + remainingNanos;
+            }
+        }
+
+        private void stop() {
+            if (--running == 0 && hasDeadline) {
+                remainingNanos = deadline - System.nanoTime();
+            }
+        }
+    }
+
     public Parser(String filePath) throws FileNotFoundException {
-        String src = FileUtils.readFileToString(filePath);
-        Lexer lexer = new Lexer(src);
-        this.tokens = lexer.iterator();
-        this.curToken = tokens.next();
-        this.nextToken = tokens.next();
+        this(filePath, false);
+    }
+
+    public Parser(String filePath, boolean lazyFunctionBodies) throws FileNotFoundException {
+        this(filePath, lazyFunctionBodies, ParseLimits.UNLIMITED, new CancellationToken());
     }
 
-    Program parse() {
-        return parseProgram();
+    public Parser(String filePath, boolean lazyFunctionBodies, ParseLimits limits, CancellationToken cancellation)
+            throws FileNotFoundException {
+        this(new Lexer(readSource(filePath, limits)).iterator(), lazyFunctionBodies, limits, cancellation);
+    }
+
+    // Parser of the input code that was read elsewhere (e.g. from stdin).
+    // A Parser is used by one thread. In lazy mode the Program may be shared once parse() has returned: every lazy
+    // body is parsed once on its first access from any thread, and the accesses wait for each other
+    public static Parser fromSource(String src, boolean lazyFunctionBodies) {
+        return fromSource(src, lazyFunctionBodies, ParseLimits.UNLIMITED, new CancellationToken());
+    }
+
+    public static Parser fromSource(String src, boolean lazyFunctionBodies, ParseLimits limits, CancellationToken cancellation) {
+        checkSourceSize(src, limits);
+        return new Parser(new Lexer(src).iterator(), lazyFunctionBodies, limits, cancellation);
+    }
+
+    // Parser of the UTF-8 file lexed from its memory mapping without decoding (see Utf8Lexer).
+    // Unlike the constructors, line breaks are not normalized: a lone '\r' is whitespace, "\r\n" stays in string literals.
+    // Thread safety of lazy mode is that of fromSource
+    public static Parser fromFile(Path file, boolean lazyFunctionBodies, ParseLimits limits, CancellationToken cancellation)
+            throws IOException {
+        if (Files.size(file) > limits.maxSourceBytes()) {
+            throw new LimitExceededException(ParseLimits.Limit.SOURCE_BYTES, limits.maxSourceBytes());
+        }
+        return new Parser(Utf8Lexer.mapFile(file).iterator(), lazyFunctionBodies, limits, cancellation);
+    }
+
+    // Parser of tokens from another lexer (e.g. ParallelLexer or PipelinedLexer), the source size is checked by the caller
+    public static Parser fromTokens(Iterable<Token> tokens, boolean lazyFunctionBodies, ParseLimits limits,
+                                    CancellationToken cancellation) {
+        return new Parser(tokens.iterator(), lazyFunctionBodies, limits, cancellation);
+    }
+
+    private Parser(Iterator<Token> tokens, boolean lazyFunctionBodies, ParseLimits limits, CancellationToken cancellation) {
+        this(tokens, lazyFunctionBodies, new Budget(limits, cancellation), 0, limits.maxTokens());
+    }
+
+    private Parser(Iterator<Token> tokens, boolean lazyFunctionBodies, Budget budget, int nestingDepth, long maxTokens) {
+        this.tokens = tokens;
+        this.lazyFunctionBodies = lazyFunctionBodies;
+        this.limits = budget.limits;
+        this.cancellation = budget.cancellation;
+        this.budget = budget;
+        this.nestingDepth = nestingDepth;
+        this.maxTokens = maxTokens;
+        this.curToken = pullToken();
+        this.nextToken = pullToken();
+    }
+
+    // Equal subtrees of the parsed program are shared through the factory, lazy function bodies are not shared
+    public void setHashConsing(HashConsing hashConsing) {
+        this.hashConsing = hashConsing;
+    }
+
+    public void setSourcePositions(SourcePositions positions) {
+        this.positions = positions;
+    }
+
+    public Program parse() {
+        budget.start();
+        try {
+            return parseProgram();
+        } finally {
+            budget.stop();
+        }
     }
 
     public String toString() {
@@ -324,35 +709,51 @@ public class Parser {
         nextSym();
     }
 
+    // Passes every top-level node to the sink as soon as it is parsed instead of building the Program.
+    // Lazy bodies of the nodes may be accessed only on the parsing thread until the parse returns
+    void parse(Consumer<Node> sink) {
+        budget.start();
+        try {
+            parseTopLevelNodes(sink);
+        } finally {
+            budget.stop();
+        }
+    }
+
     private Program parseProgram() {
         List<Node> nodes = new ArrayList<>(); // common list for all program elements
+        parseTopLevelNodes(nodes::add);
+        this.program = countNode(new Program(nodes));
+        return program;
+    }
+
+    private void parseTopLevelNodes(Consumer<Node> sink) {
         while (curToken != null && curToken.type() != null) {
             if (curToken.repr().equals("void") || curToken.repr().equals("int")) { // the returned value
                 FuncDeclaration function = (FuncDeclaration) parseFunctionDeclaration();
-                nodes.add(function);
+                sink.accept(function);
             } else if (curToken.repr().equals("if")) {
                 Statement ifStatement = parseIfStatement();
-                nodes.add(ifStatement);
+                sink.accept(ifStatement);
             } else if (curToken.repr().equals("{")) {
                 Block block = parseBlock();
-                nodes.add(block);
+                sink.accept(block);
             } else {
                 Statement statement = parseSentences();
                 // if statement null -- the next token is '{'
                 if (statement != null) {
-                    nodes.add(statement);
+                    sink.accept(statement);
                 }
             }
         }
         if (curToken != null && curToken.type() != null) {
             throw new ParserException("Unexpected token: " + curToken.type() + ". Expected EOF.");
         }
-        this.program = new Program(nodes);
-        return program;
     }
 
     private Block parseBlock() {
         acceptToken("{"); // block should start with '{'
+        enterNesting();
         List<Statement> statements = new ArrayList<>();
         while (curToken != null && !"}".equals(curToken.repr()) && curToken.type() != null) {
             if (curToken.repr().equals(";")) {
@@ -360,13 +761,20 @@ public class Parser {
                 continue;
             }
             Statement statement = parseSentences();
+            if (statement == null) { // a nested block or the end of input, the loop wouldn't advance
+                throw new ParserException("Unexpected token " + (curToken != null ? curToken.repr() : "null") + " in block.");
+            }
             statements.add(statement);
         }
         acceptToken("}"); // block should end with '}'
-        return new Block(statements);
+        nestingDepth--;
+        return countNode(new Block(statements));
     }
 
     private Statement parseSentences() {
+        while (curToken != null && ";".equals(curToken.repr())) {
+            nextSym(); // skip ';', a loop since a run of them isn't limited by the nesting depth
+        }
         if (curToken != null && "{".equals(curToken.repr())) {
             return null; // after statement, there may be a block starting with {
         }
@@ -374,17 +782,10 @@ public class Parser {
         if (statementStartWithKeyword != null) return statementStartWithKeyword;
         if (curToken != null && (curToken.type() == TokenType.IDENTIFIER)) {
             return parseStatementStartWithIdentifier(); //
-        } else if (curToken != null && (";".equals(curToken.repr()))) {
-            nextSym(); // skip ';'
-            return parseSentences(); // function declaration
+        } else if (curToken != null) {
+            throw new ParserException("Expected identifier for sentence but got " + curToken.type());
         } else {
-            if (nextToken != null) {
-                throw new ParserException("Expected identifier for sentence but got " +
-                        (curToken != null ? curToken.type() : "null"));
-            }
-            else {
-                return null;
-            }
+            return null;
         }
     }
 
@@ -401,7 +802,7 @@ public class Parser {
     }
 
     private Statement parseStatementStartWithIdentifier() {
-        Identifier identifierNode = new Identifier(curToken.repr());
+        Identifier identifierNode = countNode(new Identifier(curToken.repr()), curToken);
         if (nextToken != null && nextToken.type() == TokenType.ASSIGN) {
             nextSym(); // skip '='
             return parseAssignment(identifierNode); // assignment
@@ -441,7 +842,7 @@ public class Parser {
             String operator = curToken.repr();
             nextSym();
             MathExpr right = parseOperand.get();
-            left = new BinaryOp(left, operator, right);
+            left = countNode(new BinaryOp(left, operator, right));
         }
         return left;
     }
@@ -449,18 +850,20 @@ public class Parser {
     private MathExpr parsePrimaryExpr() {
         if (curToken != null && "(".equals(curToken.repr())) {
             nextSym();
+            enterNesting();
             MathExpr expr = parseExpr();
             acceptToken(")");
+            nestingDepth--;
             return expr;
         } else if (curToken != null) {
             Token value = curToken;
             nextSym();
             if (value.repr().matches("-?\\d+")) { // int literal
-                return new IntLiteral(Integer.parseInt(value.repr()));
+                return countNode(new IntLiteral(Integer.parseInt(value.repr())), value);
             } else if (value.type() == TokenType.IDENTIFIER) {
-                return new Identifier(value.repr());
+                return countNode(new Identifier(value.repr()), value);
             } else {
-                return new StringLiteral(value.repr()); // string literal
+                return countNode(new StringLiteral(value.repr()), value); // string literal
             }
         } else {
             throw new ParserException("Unexpected token in Primary Expr");
@@ -473,11 +876,11 @@ public class Parser {
         }
         nextSym(); // skip '='
         if (nextToken != null && nextToken.repr().equals("(")) {
-            FuncCall funcCall = parseFuncCall(identifier);
-            return new Assignment(identifier, funcCall); // identifier = funcCall
+            FuncCall funcCall = parseFuncCall(countNode(new Identifier(curToken.repr()), curToken));
+            return countNode(new Assignment(identifier, funcCall)); // identifier = funcCall
         } else {
             MathExpr expr = parseExpr();
-            return new Assignment(identifier, expr); // identifier = expr
+            return countNode(new Assignment(identifier, expr)); // identifier = expr
         }
     }
 
@@ -493,34 +896,79 @@ public class Parser {
             nextSym(); // skip else token
             elseBlock = parseBlock();
         }
-        return new IfStatement(condition, thenBlock, elseBlock);
+        return countNode(new IfStatement(condition, thenBlock, elseBlock));
     }
 
     private Statement parseFunctionDeclaration() {
         String type = curToken.repr();
         nextSym(); // skip return type
-        Identifier identifier = new Identifier(curToken.repr()); // function name
+        Identifier identifier = countNode(new Identifier(curToken.repr()), curToken); // function name
         nextSym(); // skip function name
         acceptToken("(");
         List<Identifier> args = new ArrayList<>();
         // parse arguments
         while (curToken != null && !")".equals(curToken.repr())) {
-            args.add(new Identifier(curToken.repr()));
+            args.add(countNode(new Identifier(curToken.repr()), curToken));
             nextSym(); // skip arg
             if (curToken != null && ",".equals(curToken.repr())) {
                 nextSym(); // skip ','
             }
         }
         acceptToken(")");
+        if (lazyFunctionBodies) {
+            return countNode(new FuncDeclaration(type, identifier, args, skipBlock(), budget, nestingDepth));
+        }
         Block body = parseBlock();
-        return new FuncDeclaration(type, identifier, args, body);
+        return countNode(new FuncDeclaration(type, identifier, args, body));
+    }
+
+    // Skips the block by brace matching and returns its tokens including the enclosing braces
+    private List<Token> skipBlock() {
+        if (curToken == null || !"{".equals(curToken.repr())) {
+            acceptToken("{"); // reports the error
+        }
+        List<Token> blockTokens = new ArrayList<>();
+        int depth = 0;
+        do {
+            if (curToken == null) {
+                throw new ParserException("Incorrect syntax: expected }, found: null");
+            }
+            if (curToken.type() == TokenType.SPECIAL) {
+                if ("{".equals(curToken.repr())) {
+                    depth++;
+                } else if ("}".equals(curToken.repr())) {
+                    depth--;
+                }
+            }
+            blockTokens.add(curToken);
+            nextSym();
+        } while (depth > 0);
+        return blockTokens;
+    }
+
+    // Parses the function body skipped in lazy mode under the rest of the limits of its parse,
+    // nested functions stay lazy
+    static Block parseLazyBody(List<Token> bodyTokens, Budget budget, int nestingDepth) {
+        synchronized (budget) {
+            budget.start();
+            try {
+                Parser parser = new Parser(bodyTokens.iterator(), true, budget, nestingDepth, Long.MAX_VALUE);
+                Block body = parser.parseBlock();
+                if (parser.curToken != null) {
+                    throw new ParserException("Unexpected token: " + parser.curToken.repr() + ". Expected end of function body.");
+                }
+                return body;
+            } finally {
+                budget.stop();
+            }
+        }
     }
 
     private Statement parseReturnStatement() {
         acceptToken("return");
         MathExpr expression = parseExpr();
         acceptToken(";");
-        return new ReturnStatement(expression);
+        return countNode(new ReturnStatement(expression));
     }
 
     private FuncCall parseFuncCall(Identifier funcName) {
@@ -537,16 +985,99 @@ public class Parser {
             }
         }
         acceptToken(")");
-        return new FuncCall(funcName, args);
+        return countNode(new FuncCall(funcName, args));
     }
 
     private void nextSym() {
         curToken = nextToken;
-        if (tokens.hasNext()) {
-            nextToken = tokens.next();
-        } else {
-            nextToken = null;
+        nextToken = pullToken();
+    }
+
+    // Reads the next token from the lexer and checks the token limit, the cancellation and the deadline
+    private Token pullToken() {
+        if (!tokens.hasNext()) {
+            return null;
+        }
+        Token token = tokens.next();
+        if (++tokenCount > maxTokens) {
+            throw new LimitExceededException(ParseLimits.Limit.TOKENS, limits.maxTokens());
+        }
+        if (cancellation.isCancelled()) {
+            throw new CancelledException();
+        }
+        if ((tokenCount & (DEADLINE_CHECK_INTERVAL - 1)) == 0) {
+            checkDeadline();
+        }
+        return token;
+    }
+
+    private void enterNesting() {
+        if (++nestingDepth > limits.maxNestingDepth()) {
+            throw new LimitExceededException(ParseLimits.Limit.NESTING_DEPTH, limits.maxNestingDepth());
         }
+        checkDeadline();
+    }
+
+    private <T extends Node> T countNode(T node) {
+        if (++budget.nodeCount > limits.maxNodes()) {
+            throw new LimitExceededException(ParseLimits.Limit.AST_NODES, limits.maxNodes());
+        }
+        return hashConsing != null ? hashConsing.intern(node) : node;
+    }
+
+    // Node created from the token, its position is recorded
+    private <T extends Node> T countNode(T node, Token token) {
+        T counted = countNode(node);
+        if (positions != null && token != null) {
+            positions.record(counted, token.pos());
+        }
+        return counted;
+    }
+
+    private void checkDeadline() {
+        if (cancellation.isCancelled()) {
+            throw new CancelledException();
+        }
+        if (budget.hasDeadline && System.nanoTime() - budget.deadline > 0) {
+            throw new LimitExceededException(ParseLimits.Limit.DEADLINE, limits.timeoutMillis());
+        }
+    }
+
+    private static String readSource(String filePath, ParseLimits limits) throws FileNotFoundException {
+        long fileSize = new File(filePath).length(); // checked before reading the file
+        if (fileSize > limits.maxSourceBytes()) {
+            throw new LimitExceededException(ParseLimits.Limit.SOURCE_BYTES, limits.maxSourceBytes());
+        }
+        String src = FileUtils.readFileToString(filePath);
+        checkSourceSize(src, limits);
+        return src;
+    }
+
+    // Checks the input code lexed elsewhere (e.g. by PipelinedLexer) before it is passed to fromTokens
+    public static void checkSourceSize(String src, ParseLimits limits) {
+        long max = limits.maxSourceBytes();
+        // A char takes from 1 to 3 bytes in UTF-8, count the bytes only if the length doesn't decide
+        if (src.length() > max || ((long) src.length() * 3 > max && utf8Length(src) > max)) {
+            throw new LimitExceededException(ParseLimits.Limit.SOURCE_BYTES, max);
+        }
+    }
+
+    private static long utf8Length(String src) {
+        long length = 0;
+        for (int i = 0; i < src.length(); i++) {
+            char c = src.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++; // the low surrogate
+            } else {
+                length += 3;
+            }
+        }
+        return length;
     }
 
     static String getCurOffset(int offset) {
@@ -558,4 +1089,24 @@ public class Parser {
             super(message);
         }
     }
+
+    // One of ParseLimits was exceeded
+    public static class LimitExceededException extends ParserException {
+        private final ParseLimits.Limit limit;
+
+        public LimitExceededException(ParseLimits.Limit limit, long max) {
+            super("Parse limit exceeded: " + limit + " (max " + max + ")");
+            this.limit = limit;
+        }
+
+        public ParseLimits.Limit getLimit() {
+            return limit;
+        }
+    }
+
+    public static class CancelledException extends ParserException {
+        public CancelledException() {
+            super("Parse was cancelled");
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package parser;
+
+import java.util.List;
+import java.util.Objects;
+
+// The root node of the AST
+public class Program implements Node {
+    private final List<Node> nodes;
+    private int hash; // cached hash code, 0 until computed
+
+    Program(List<Node> nodes) {
+        this.nodes = nodes;
+    }
+
+    List<Node> getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Program other && hashCode() == other.hashCode() && Objects.equals(nodes, other.nodes);
+    }
+
+    @Override
+    public int hashCode() {
+        if (hash == 0) {
+            hash = Objects.hashCode(nodes);
+        }
+        return hash;
+    }
+
+
+    @Override
+    public String toString(int offset) {
+        StringBuilder sb = new StringBuilder();
+        String curOffset = Parser.getCurOffset(offset);
+        if (nodes.isEmpty()) {
+            return "";
+        }
+        sb.append(curOffset).append("Program:\n");
+        for (Node node : nodes) {
+            switch (node) {
+                case Block block -> {
+                    // print Blocks
+                    sb.append(curOffset).append("  Block:\n");
+                    sb.append(block.toString(offset + 2));
+                }
+                case FuncDeclaration funcDeclaration -> {
+                    // print Functions
+                    sb.append(curOffset).append("  Function:\n");
+                    sb.append(funcDeclaration.toString(offset + 2));
+                }
+                case Statement statement -> {
+                    // print Statements
+                    sb.append(curOffset).append("  Statement:\n");
+                    sb.append(statement.toString(offset + 2));
+                }
+                case null, default -> {
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package parser;
+
+import java.util.*;
+
+// Finds pure int functions: functions that only compute their result from the arguments.
+// A function is pure if it is declared as int and its body has no print, no function declarations,
+// no reads of global variables and calls only pure functions.
+// Functions are resolved by name at run time, so a name is pure only if all its declarations are pure.
+class PurityAnalyzer {
+    private final Map<String, List<FuncDeclaration>> declarations = new HashMap<>();
+
+    private PurityAnalyzer() {
+    }
+
+    static Set<String> pureFunctions(Program program) {
+        PurityAnalyzer analyzer = new PurityAnalyzer();
+        for (Node node : program.getNodes()) {
+            analyzer.collectDeclarations(node);
+        }
+        return analyzer.findPure();
+    }
+
+    // Parameters and all variables assigned in the function body
+    static Set<String> localNames(FuncDeclaration function) {
+        Set<String> names = new HashSet<>();
+        for (Identifier arg : function.getArgs()) {
+            names.add(arg.getName());
+        }
+        collectAssigned(function.getFuncBody(), names);
+        return names;
+    }
+
+    private static void collectAssigned(Node node, Set<String> names) {
+        switch (node) {
+            case Block block -> block.getStatements().forEach(statement -> collectAssigned(statement, names));
+            case Assignment assignment -> names.add(assignment.getIdentifier().getName());
+            case IfStatement ifStatement -> {
+                collectAssigned(ifStatement.getThenBlock(), names);
+                if (ifStatement.getElseBlock() != null) {
+                    collectAssigned(ifStatement.getElseBlock(), names);
+                }
+            }
+            case null, default -> {
+            }
+        }
+    }
+
+    private void collectDeclarations(Node node) {
+        switch (node) {
+            case Block block -> block.getStatements().forEach(this::collectDeclarations);
+            case FuncDeclaration function -> {
+                declarations.computeIfAbsent(function.getIdentifier().getName(), name -> new ArrayList<>()).add(function);
+                collectDeclarations(function.getFuncBody());
+            }
+            case IfStatement ifStatement -> {
+                collectDeclarations(ifStatement.getThenBlock());
+                if (ifStatement.getElseBlock() != null) {
+                    collectDeclarations(ifStatement.getElseBlock());
+                }
+            }
+            case null, default -> {
+            }
+        }
+    }
+
+    private Set<String> findPure() {
+        // Candidates are pure if their callees are pure, remove candidates with impure callees until nothing changes
+        Map<String, Set<String>> callees = new HashMap<>();
+        for (Map.Entry<String, List<FuncDeclaration>> entry : declarations.entrySet()) {
+            Set<String> calledNames = new HashSet<>();
+            boolean pure = true;
+            for (FuncDeclaration function : entry.getValue()) {
+                pure &= "int".equals(function.getType())
+                        && isPure(function.getFuncBody(), localNames(function), calledNames);
+            }
+            if (pure) {
+                callees.put(entry.getKey(), calledNames);
+            }
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = callees.values().removeIf(calledNames -> !callees.keySet().containsAll(calledNames));
+        }
+        return callees.keySet();
+    }
+
+    private static boolean isPure(Node node, Set<String> locals, Set<String> calledNames) {
+        return switch (node) {
+            case null -> true;
+            case Block block -> block.getStatements().stream().allMatch(statement -> isPure(statement, locals, calledNames));
+            case Assignment assignment -> isPure(assignment.getExpr(), locals, calledNames); // writes are local
+            case IfStatement ifStatement -> isPure(ifStatement.getCondition(), locals, calledNames)
+                    && isPure(ifStatement.getThenBlock(), locals, calledNames)
+                    && isPure(ifStatement.getElseBlock(), locals, calledNames);
+            case ReturnStatement returnStatement -> isPure(returnStatement.getExpression(), locals, calledNames);
+            case FuncCall call -> {
+                calledNames.add(call.getIdentifier().getName()); // print is never declared, so it is impure
+                yield call.getArgs().stream().allMatch(arg -> isPure(arg, locals, calledNames));
+            }
+            case BinaryOp binaryOp -> isPure(binaryOp.getLeft(), locals, calledNames)
+                    && isPure(binaryOp.getRight(), locals, calledNames);
+            case Identifier identifier -> locals.contains(identifier.getName()); // a global read is impure
+            case Literal literal -> true;
+            default -> false; // function declarations change the function table
+        };
+    }
+}
@@ -0,0 +1,362 @@
+package parser;
+
+import lexer.Lexer;
+import lexer.Token;
+import lexer.TokenType;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+// Checks the input code with the grammar of Parser without building the AST.
+// No nodes, Lists or Strings are created on the success path (the lexer still creates the tokens),
+// a syntax error is reported as the position of the first token that doesn't fit instead of a message.
+// The input is accepted iff Parser (with eager function bodies) accepts it; limits are checked as in Parser
+// and their errors are thrown.
+public class Recognizer {
+    private static final int DEADLINE_CHECK_INTERVAL = 64; // tokens between the clock reads, a power of two
+
+    public enum Status {
+        VALID,
+        SYNTAX_ERROR, // the token at the position doesn't fit the grammar
+        UNEXPECTED_END, // the input ended after the token at the position (1:1 for the empty input)
+        LEXER_ERROR
+    }
+
+    // line, col -- position of the error, 0 if valid
+    public record Result(Status status, int line, int col) {
+        private static final Result VALID = new Result(Status.VALID, 0, 0);
+
+        public boolean isValid() {
+            return status == Status.VALID;
+        }
+    }
+
+    // Unwinds the recognition after an error, preallocated since the position is kept in the Recognizer
+    private static final class Failure extends RuntimeException {
+        private static final Failure INSTANCE = new Failure();
+
+        private Failure() {
+            super(null, null, false, false);
+        }
+    }
+
+    private Token curToken;
+    private Token nextToken;
+    private Token lastToken; // the last token passed
+    private final Iterator<Token> tokens;
+    private final ParseLimits limits;
+    private final CancellationToken cancellation;
+    private long tokenCount = 0;
+    private long nodeCount = 0; // nodes Parser would create
+    private int nestingDepth = 0;
+    private long deadline = 0;
+    private boolean hasDeadline = false;
+    private Result failure;
+
+    private Recognizer(Iterator<Token> tokens, ParseLimits limits, CancellationToken cancellation) {
+        this.tokens = tokens;
+        this.limits = limits;
+        this.cancellation = cancellation;
+    }
+
+    public static Result recognize(String src) {
+        return recognize(src, ParseLimits.UNLIMITED, new CancellationToken());
+    }
+
+    public static Result recognize(String src, ParseLimits limits, CancellationToken cancellation) {
+        Parser.checkSourceSize(src, limits);
+        return new Recognizer(new Lexer(src).iterator(), limits, cancellation).recognize();
+    }
+
+    // Recognizer of tokens from another lexer (e.g. ParallelLexer or PipelinedLexer), the source size is checked by the caller
+    public static Result recognize(Iterable<Token> tokens, ParseLimits limits, CancellationToken cancellation) {
+        return new Recognizer(tokens.iterator(), limits, cancellation).recognize();
+    }
+
+    private Result recognize() {
+        try {
+            curToken = pullToken();
+            nextToken = pullToken();
+            startDeadline();
+            recognizeTopLevelNodes();
+            countNode(); // Program
+            return Result.VALID;
+        } catch (Failure e) {
+            return failure;
+        } catch (RuntimeException e) {
+            // Lexer errors come wrapped by the token iterator
+            Throwable cause = e instanceof Lexer.LexerException ? e : e.getCause();
+            if (cause instanceof Lexer.LexerException lexerError && lexerError.getPos() != null) {
+                return new Result(Status.LEXER_ERROR, lexerError.getPos().line(), lexerError.getPos().col());
+            }
+            throw e;
+        }
+    }
+
+    private Failure fail(Token token) {
+        if (token != null) {
+            failure = new Result(Status.SYNTAX_ERROR, token.pos().line(), token.pos().col());
+        } else if (lastToken != null) {
+            failure = new Result(Status.UNEXPECTED_END, lastToken.pos().line(), lastToken.pos().col());
+        } else {
+            failure = new Result(Status.UNEXPECTED_END, 1, 1);
+        }
+        return Failure.INSTANCE;
+    }
+
+    private void acceptToken(String target) {
+        if (curToken == null || !target.equals(curToken.repr())) {
+            throw fail(curToken);
+        }
+        nextSym();
+    }
+
+    private void recognizeTopLevelNodes() {
+        while (curToken != null && curToken.type() != null) {
+            switch (curToken.repr()) {
+                case "void", "int" -> recognizeFunctionDeclaration();
+                case "if" -> recognizeIfStatement();
+                case "{" -> recognizeBlock();
+                default -> recognizeSentence();
+            }
+        }
+    }
+
+    private void recognizeBlock() {
+        acceptToken("{");
+        enterNesting();
+        while (curToken != null && !"}".equals(curToken.repr()) && curToken.type() != null) {
+            if (curToken.repr().equals(";")) {
+                nextSym();
+                continue;
+            }
+            if (!recognizeSentence()) {
+                throw fail(curToken);
+            }
+        }
+        acceptToken("}");
+        nestingDepth--;
+        countNode();
+    }
+
+    // false if there is no statement: the next token is '{' or the input ended
+    private boolean recognizeSentence() {
+        while (curToken != null && ";".equals(curToken.repr())) {
+            nextSym(); // Parser skips ';' by recursion
+        }
+        if (curToken == null || "{".equals(curToken.repr())) {
+            return false;
+        }
+        if (curToken.type() == TokenType.KEYWORD) {
+            switch (curToken.repr()) {
+                case "return" -> recognizeReturnStatement();
+                case "if" -> recognizeIfStatement();
+                default -> recognizeFunctionDeclaration();
+            }
+        } else if (curToken.type() == TokenType.IDENTIFIER) {
+            recognizeStatementStartWithIdentifier();
+        } else {
+            throw fail(curToken);
+        }
+        return true;
+    }
+
+    private void recognizeStatementStartWithIdentifier() {
+        countNode(); // identifier
+        if (nextToken != null && nextToken.type() == TokenType.ASSIGN) {
+            nextSym();
+            recognizeAssignment();
+        } else if (nextToken != null && nextToken.type() == TokenType.OPERATION) {
+            nextSym();
+            recognizeExpr();
+        } else if (nextToken != null && "(".equals(nextToken.repr())) {
+            recognizeFuncCall();
+        } else {
+            nextSym();
+            throw fail(curToken);
+        }
+    }
+
+    private void recognizeExpr() {
+        recognizeBinaryOperation(0);
+    }
+
+    // level -- precedence from 0 (==, !=, >=, <=) to 3 (*, /, %) as in Parser
+    private void recognizeBinaryOperation(int level) {
+        recognizeOperand(level);
+        while (curToken != null && isOperator(curToken.repr(), level)) {
+            nextSym();
+            recognizeOperand(level);
+            countNode();
+        }
+    }
+
+    private void recognizeOperand(int level) {
+        if (level == 3) {
+            recognizePrimaryExpr();
+        } else {
+            recognizeBinaryOperation(level + 1);
+        }
+    }
+
+    private static boolean isOperator(String repr, int level) {
+        return switch (level) {
+            case 0 -> repr.equals("==") || repr.equals("!=") || repr.equals(">=") || repr.equals("<=");
+            case 1 -> repr.equals("<") || repr.equals(">") || repr.equals("=");
+            case 2 -> repr.equals("+") || repr.equals("-");
+            default -> repr.equals("*") || repr.equals("/") || repr.equals("%");
+        };
+    }
+
+    private void recognizePrimaryExpr() {
+        if (curToken != null && "(".equals(curToken.repr())) {
+            nextSym();
+            enterNesting();
+            recognizeExpr();
+            acceptToken(")");
+            nestingDepth--;
+        } else if (curToken != null) {
+            Token value = curToken;
+            nextSym();
+            if (value.type() == TokenType.INT && !fitsInt(value.repr())) {
+                throw fail(value); // Parser fails in Integer.parseInt
+            }
+            countNode(); // literal or identifier
+        } else {
+            throw fail(null);
+        }
+    }
+
+    // Whether the integer token, "-?\d+", is in the int range
+    private static boolean fitsInt(String repr) {
+        boolean negative = repr.charAt(0) == '-';
+        long value = 0;
+        for (int i = negative ? 1 : 0; i < repr.length(); i++) {
+            value = value * 10 + (repr.charAt(i) - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return false;
+            }
+        }
+        return negative || value <= Integer.MAX_VALUE;
+    }
+
+    private void recognizeAssignment() {
+        if (curToken == null || curToken.type() != TokenType.ASSIGN) {
+            throw fail(curToken);
+        }
+        nextSym();
+        if (nextToken != null && nextToken.repr().equals("(")) {
+            countNode(); // function name
+            recognizeFuncCall();
+        } else {
+            recognizeExpr();
+        }
+        countNode();
+    }
+
+    private void recognizeIfStatement() {
+        acceptToken("if");
+        acceptToken("(");
+        recognizeExpr();
+        acceptToken(")");
+        recognizeBlock();
+        if (curToken != null && "else".equals(curToken.repr())) {
+            nextSym();
+            recognizeBlock();
+        }
+        countNode();
+    }
+
+    private void recognizeFunctionDeclaration() {
+        nextSym(); // skip return type
+        if (curToken == null) {
+            throw fail(null);
+        }
+        countNode(); // function name
+        nextSym();
+        acceptToken("(");
+        while (curToken != null && !")".equals(curToken.repr())) {
+            countNode(); // argument
+            nextSym();
+            if (curToken != null && ",".equals(curToken.repr())) {
+                nextSym();
+            }
+        }
+        acceptToken(")");
+        recognizeBlock();
+        countNode();
+    }
+
+    private void recognizeReturnStatement() {
+        acceptToken("return");
+        recognizeExpr();
+        acceptToken(";");
+        countNode();
+    }
+
+    private void recognizeFuncCall() {
+        nextSym(); // skip name of function
+        acceptToken("(");
+        while (curToken != null && !")".equals(curToken.repr())) {
+            if (",".equals(curToken.repr())) {
+                nextSym();
+            } else {
+                recognizeExpr();
+            }
+        }
+        acceptToken(")");
+        countNode();
+    }
+
+    private void nextSym() {
+        lastToken = curToken;
+        curToken = nextToken;
+        nextToken = pullToken();
+    }
+
+    private Token pullToken() {
+        if (!tokens.hasNext()) {
+            return null;
+        }
+        Token token = tokens.next();
+        if (++tokenCount > limits.maxTokens()) {
+            throw new Parser.LimitExceededException(ParseLimits.Limit.TOKENS, limits.maxTokens());
+        }
+        if (cancellation.isCancelled()) {
+            throw new Parser.CancelledException();
+        }
+        if ((tokenCount & (DEADLINE_CHECK_INTERVAL - 1)) == 0) {
+            checkDeadline();
+        }
+        return token;
+    }
+
+    private void enterNesting() {
+        if (++nestingDepth > limits.maxNestingDepth()) {
+            throw new Parser.LimitExceededException(ParseLimits.Limit.NESTING_DEPTH, limits.maxNestingDepth());
+        }
+        checkDeadline();
+    }
+
+    private void countNode() {
+        if (++nodeCount > limits.maxNodes()) {
+            throw new Parser.LimitExceededException(ParseLimits.Limit.AST_NODES, limits.maxNodes());
+        }
+    }
+
+    private void startDeadline() {
+        if (limits.timeoutMillis() != Long.MAX_VALUE) {
+            deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(limits.timeoutMillis());
+            hasDeadline = true;
+        }
+    }
+
+    private void checkDeadline() {
+        if (cancellation.isCancelled()) {
+            throw new Parser.CancelledException();
+        }
+        if (hasDeadline && System.nanoTime() - deadline > 0) {
+            throw new Parser.LimitExceededException(ParseLimits.Limit.DEADLINE, limits.timeoutMillis());
+        }
+    }
+}
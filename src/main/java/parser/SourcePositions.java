@@ -0,0 +1,30 @@
+package parser;
+
+import lexer.Lexer;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+// Source positions of AST nodes recorded by the parser, kept apart from the nodes to keep them structurally equal.
+// Positions are recorded for identifiers and literals; lazy function bodies are not covered.
+// A node shared by hash-consing keeps the position of its first occurrence.
+public class SourcePositions {
+    private final Map<Node, Lexer.Pos> positions = new IdentityHashMap<>();
+
+    void record(Node node, Lexer.Pos pos) {
+        positions.putIfAbsent(node, pos);
+    }
+
+    // Position of the node or null if it wasn't recorded
+    Lexer.Pos get(Node node) {
+        return positions.get(node);
+    }
+
+    void clear() {
+        positions.clear();
+    }
+
+    public int size() {
+        return positions.size();
+    }
+}
@@ -0,0 +1,78 @@
+package parser;
+
+import lexer.Lexer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Occurrences of function and variable names in a program, in source order
+public class SymbolOccurrences {
+    public enum Kind {
+        DECLARATION, // function declaration
+        PARAMETER, // parameter of a function declaration
+        CALL, // function call
+        ASSIGNMENT, // variable on the left side of an assignment
+        REFERENCE // variable read in an expression
+    }
+
+    // pos is null if the position wasn't recorded
+    public record Occurrence(String symbol, Kind kind, Lexer.Pos pos) {
+    }
+
+    private final SourcePositions positions;
+    private final List<Occurrence> occurrences = new ArrayList<>();
+
+    private SymbolOccurrences(SourcePositions positions) {
+        this.positions = positions;
+    }
+
+    // Parses the input code with source positions, throws the parser and lexer errors
+    public static List<Occurrence> collect(String src) {
+        SourcePositions positions = new SourcePositions();
+        Parser parser = Parser.fromSource(src, false);
+        parser.setSourcePositions(positions);
+        return collect(parser.parse(), positions);
+    }
+
+    public static List<Occurrence> collect(Program program, SourcePositions positions) {
+        SymbolOccurrences collector = new SymbolOccurrences(positions);
+        program.getNodes().forEach(collector::visit);
+        return collector.occurrences;
+    }
+
+    private void visit(Node node) {
+        switch (node) {
+            case Block block -> block.getStatements().forEach(this::visit);
+            case FuncDeclaration function -> {
+                add(function.getIdentifier(), Kind.DECLARATION);
+                function.getArgs().forEach(arg -> add(arg, Kind.PARAMETER));
+                visit(function.getFuncBody());
+            }
+            case FuncCall call -> {
+                add(call.getIdentifier(), Kind.CALL);
+                call.getArgs().forEach(this::visit);
+            }
+            case Assignment assignment -> {
+                add(assignment.getIdentifier(), Kind.ASSIGNMENT);
+                visit(assignment.getExpr());
+            }
+            case IfStatement ifStatement -> {
+                visit(ifStatement.getCondition());
+                visit(ifStatement.getThenBlock());
+                visit(ifStatement.getElseBlock());
+            }
+            case ReturnStatement returnStatement -> visit(returnStatement.getExpression());
+            case BinaryOp binaryOp -> {
+                visit(binaryOp.getLeft());
+                visit(binaryOp.getRight());
+            }
+            case Identifier identifier -> add(identifier, Kind.REFERENCE);
+            case null, default -> {
+            }
+        }
+    }
+
+    private void add(Identifier identifier, Kind kind) {
+        occurrences.add(new Occurrence(identifier.getName(), kind, positions.get(identifier)));
+    }
+}
@@ -1,16 +1,26 @@
 package utils;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.InputStream;
 import java.util.Scanner;
 
 
 public class FileUtils {
     public static String readFileToString(String filePath) throws FileNotFoundException {
-        StringBuilder content = new StringBuilder();
         try (Scanner scanner = new Scanner(new File(filePath))) {
-            while (scanner.hasNextLine()) {
-                content.append(scanner.nextLine()).append("\n");
-            }
+            return readLines(scanner);
+        }
+    }
+
+    // Reads the stream to the end without closing it (e.g. stdin)
+    public static String readStreamToString(InputStream inputStream) {
+        return readLines(new Scanner(inputStream));
+    }
+
+    private static String readLines(Scanner scanner) {
+        StringBuilder content = new StringBuilder();
+        while (scanner.hasNextLine()) {
+            content.append(scanner.nextLine()).append("\n");
         }
         return content.toString();
     }
@@ -0,0 +1,67 @@
+package utils;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayList;
+import java.util.List;
+
+// Append-only UTF-16 text stored off-heap in growing pages allocated from the arena.
+// A string is referenced by its start index and its length, the memory is released when the arena is closed.
+public class OffHeapCharList {
+    private static final PageLayout PAGES = new PageLayout(8, 20); // from 256 to 1M chars in a page
+
+    private final Arena arena;
+    private final List<MemorySegment> pages = new ArrayList<>();
+    private long size = 0;
+    private long capacity = 0; // chars in the allocated pages
+    private long lastPageStart = 0;
+    private long allocatedBytes = 0;
+
+    public OffHeapCharList(Arena arena) {
+        this.arena = arena;
+    }
+
+    // Returns the start index of the added text
+    public long add(CharSequence text) {
+        long start = size;
+        for (int i = 0; i < text.length(); i++) {
+            if (size == capacity) {
+                addPage();
+            }
+            pages.get(pages.size() - 1).setAtIndex(ValueLayout.JAVA_CHAR, size - lastPageStart, text.charAt(i));
+            size++;
+        }
+        return start;
+    }
+
+    private void addPage() {
+        long pageBytes = PAGES.pageSize(pages.size()) * Character.BYTES;
+        lastPageStart = capacity;
+        capacity += PAGES.pageSize(pages.size());
+        pages.add(arena.allocate(pageBytes, Character.BYTES));
+        allocatedBytes += pageBytes;
+    }
+
+    public String get(long start, int length) {
+        if (start < 0 || length < 0 || start + length > size) {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + (start + length) + ") out of bounds for size " + size);
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            long index = start + i;
+            int page = PAGES.page(index);
+            chars[i] = pages.get(page).getAtIndex(ValueLayout.JAVA_CHAR, index - PAGES.pageStart(page));
+        }
+        return new String(chars);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    // Off-heap memory allocated for the text
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+}
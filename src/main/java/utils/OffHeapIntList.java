@@ -0,0 +1,69 @@
+package utils;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayList;
+import java.util.List;
+
+// Append-only list of ints stored off-heap in growing pages allocated from the arena.
+// Appending never copies, the memory is released when the arena is closed.
+public class OffHeapIntList {
+    private static final PageLayout PAGES = new PageLayout(6, 16); // from 64 to 64K ints in a page
+
+    private final Arena arena;
+    private final List<MemorySegment> pages = new ArrayList<>();
+    private long size = 0;
+    private long capacity = 0; // ints in the allocated pages
+    private long lastPageStart = 0;
+    private long allocatedBytes = 0;
+
+    public OffHeapIntList(Arena arena) {
+        this.arena = arena;
+    }
+
+    // Returns the index of the added value
+    public long add(int value) {
+        if (size == capacity) {
+            addPage();
+        }
+        pages.get(pages.size() - 1).setAtIndex(ValueLayout.JAVA_INT, size - lastPageStart, value);
+        return size++;
+    }
+
+    private void addPage() {
+        long pageBytes = PAGES.pageSize(pages.size()) * Integer.BYTES;
+        lastPageStart = capacity;
+        capacity += PAGES.pageSize(pages.size());
+        pages.add(arena.allocate(pageBytes, Integer.BYTES));
+        allocatedBytes += pageBytes;
+    }
+
+    // Adds the value as two ints, the high half first
+    public long addLong(long value) {
+        long index = add((int) (value >>> 32));
+        add((int) value);
+        return index;
+    }
+
+    public int get(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        int page = PAGES.page(index);
+        return pages.get(page).getAtIndex(ValueLayout.JAVA_INT, index - PAGES.pageStart(page));
+    }
+
+    public long getLong(long index) {
+        return ((long) get(index) << 32) | (get(index + 1) & 0xFFFFFFFFL);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    // Off-heap memory allocated for the list
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+}
@@ -0,0 +1,39 @@
+package utils;
+
+// Sizes of the pages of an off-heap list: they double from 2^firstShift to 2^maxShift elements and then stay
+// at 2^maxShift, so a small list takes little memory and a large one is never copied and has few pages.
+final class PageLayout {
+    private final int firstShift;
+    private final int maxShift;
+    private final int growingPages; // pages smaller than the maximum
+    private final long growingCapacity; // elements in them
+
+    PageLayout(int firstShift, int maxShift) {
+        this.firstShift = firstShift;
+        this.maxShift = maxShift;
+        this.growingPages = maxShift - firstShift;
+        this.growingCapacity = (1L << maxShift) - (1L << firstShift);
+    }
+
+    // Page of the element
+    int page(long index) {
+        if (index < growingCapacity) {
+            // page k starts at 2^(firstShift + k) - 2^firstShift
+            return 63 - Long.numberOfLeadingZeros(index + (1L << firstShift)) - firstShift;
+        }
+        return growingPages + (int) ((index - growingCapacity) >>> maxShift);
+    }
+
+    // Index of the first element of the page
+    long pageStart(int page) {
+        if (page < growingPages) {
+            return (1L << (firstShift + page)) - (1L << firstShift);
+        }
+        return growingCapacity + ((long) (page - growingPages) << maxShift);
+    }
+
+    // Elements in the page
+    long pageSize(int page) {
+        return 1L << (firstShift + Math.min(page, growingPages));
+    }
+}
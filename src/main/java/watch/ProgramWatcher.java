@@ -0,0 +1,279 @@
+package watch;
+
+import lexer.Lexer;
+import parser.Parser;
+import parser.Program;
+import utils.FileUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+// Watches a directory tree and reparses .pt files when their content changes.
+// Events are debounced: a file is reparsed when no new events for it came during the debounce interval.
+// The last Program of every file is kept in memory, files with the same content hash are not reparsed.
+public class ProgramWatcher implements Closeable {
+    private static final String EXTENSION = ".pt";
+
+    // Receives the results on the watcher thread
+    public interface Listener {
+        void onParsed(Result result);
+
+        default void onRemoved(Path file) {
+        }
+    }
+
+    // program is null if the file has a syntax error, latency is counted from the first change event
+    public record Result(Path file, Program program, String error, long latencyNanos) {
+    }
+
+    public record Metrics(long parsed, long unchanged, long lastLatencyNanos, long maxLatencyNanos, long averageLatencyNanos) {
+    }
+
+    private record FileState(byte[] hash, Result result) {
+    }
+
+    private final Path root;
+    private final long debounceNanos;
+    private final Listener listener;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Map<Path, WatchKey> watchKeys = new HashMap<>(); // registered directory -> its key
+    private final Map<Path, FileState> files = new ConcurrentHashMap<>();
+    private final Map<Path, Long> firstEvents = new HashMap<>(); // pending file -> time of its first event
+    private final Map<Path, Long> lastEvents = new HashMap<>(); // pending file -> time of its last event
+    private Thread thread;
+
+    private final AtomicLong parsed = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong lastLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+
+    public ProgramWatcher(Path root, long debounceMillis, Listener listener) throws IOException {
+        this.root = root;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        this.listener = listener;
+        this.watchService = root.getFileSystem().newWatchService();
+    }
+
+    // Parses all files of the tree and starts watching it
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            throw new IllegalStateException("Watcher is already started");
+        }
+        for (Path file : registerTree(root)) {
+            process(file, System.nanoTime());
+        }
+        thread = new Thread(this::watchLoop, "program-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Last result of the file or null if the file isn't known
+    public Result lastResult(Path file) {
+        FileState state = files.get(file.toAbsolutePath().normalize());
+        return state != null ? state.result() : null;
+    }
+
+    public Metrics metrics() {
+        long count = parsed.get();
+        return new Metrics(count, unchanged.get(), lastLatency.get(), maxLatency.get(),
+                count == 0 ? 0 : totalLatency.get() / count);
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close(); // wakes up the watcher thread
+        Thread watcherThread = thread;
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+            try {
+                watcherThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = firstEvents.isEmpty()
+                        ? watchService.take()
+                        : watchService.poll(nextDeadline() - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (key != null) {
+                    handleEvents(key);
+                }
+                processDebounced();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // the watcher is closed
+        }
+    }
+
+    private void handleEvents(WatchKey key) {
+        Path directory = directories.get(key);
+        if (directory == null) {
+            return; // the directory was unregistered
+        }
+        long now = System.nanoTime();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                rescan(now);
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                try {
+                    for (Path file : registerTree(path)) {
+                        markChanged(file, now);
+                    }
+                } catch (IOException e) {
+                    // the directory was removed before registration
+                }
+            } else if (path.toString().endsWith(EXTENSION)) {
+                markChanged(path, now);
+            } else if (event.kind() == ENTRY_DELETE) {
+                // a directory was removed or renamed, its files are reported as removed by the processing
+                unregisterTree(path);
+                for (Path file : files.keySet()) {
+                    if (file.startsWith(path)) {
+                        markChanged(file, now);
+                    }
+                }
+            }
+        }
+        if (!key.reset()) {
+            Path removed = directories.remove(key);
+            if (removed != null) {
+                watchKeys.remove(removed, key);
+            }
+        }
+    }
+
+    // Stops watching the directories of the tree, a directory created at the same path is registered again
+    private void unregisterTree(Path start) {
+        Iterator<Map.Entry<Path, WatchKey>> iterator = watchKeys.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, WatchKey> entry = iterator.next();
+            if (entry.getKey().startsWith(start)) {
+                entry.getValue().cancel();
+                directories.remove(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    private void rescan(long now) {
+        try {
+            for (Path file : registerTree(root)) {
+                markChanged(file, now);
+            }
+        } catch (IOException e) {
+            // the root was removed
+        }
+        for (Path file : files.keySet()) {
+            markChanged(file, now); // removed files are found by the processing
+        }
+    }
+
+    private void markChanged(Path file, long now) {
+        firstEvents.putIfAbsent(file, now);
+        lastEvents.put(file, now);
+    }
+
+    private long nextDeadline() {
+        return Collections.min(lastEvents.values()) + debounceNanos;
+    }
+
+    private void processDebounced() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Path, Long>> iterator = lastEvents.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Long> entry = iterator.next();
+            if (now - entry.getValue() >= debounceNanos) {
+                iterator.remove();
+                process(entry.getKey(), firstEvents.remove(entry.getKey()));
+            }
+        }
+    }
+
+    private void process(Path file, long firstEvent) {
+        byte[] content;
+        try {
+            content = Files.readAllBytes(file);
+        } catch (IOException e) {
+            if (files.remove(file) != null) {
+                listener.onRemoved(file);
+            }
+            return;
+        }
+        byte[] hash = hash(content);
+        FileState state = files.get(file);
+        if (state != null && Arrays.equals(state.hash(), hash)) {
+            unchanged.incrementAndGet(); // saved without changes
+            return;
+        }
+
+        Program program = null;
+        String error = null;
+        try {
+            program = Parser.fromSource(FileUtils.readStreamToString(new ByteArrayInputStream(content)), false).parse();
+        } catch (RuntimeException e) {
+            error = e.getCause() instanceof Lexer.LexerException ? e.getCause().getMessage() : e.getMessage();
+        }
+        long latency = System.nanoTime() - firstEvent;
+        Result result = new Result(file, program, error, latency);
+        files.put(file, new FileState(hash, result));
+
+        parsed.incrementAndGet();
+        lastLatency.set(latency);
+        maxLatency.accumulateAndGet(latency, Math::max);
+        totalLatency.addAndGet(latency);
+        listener.onParsed(result);
+    }
+
+    // Registers the directories of the tree and returns its .pt files
+    private List<Path> registerTree(Path start) throws IOException {
+        List<Path> found = new ArrayList<>();
+        Files.walkFileTree(start.toAbsolutePath().normalize(), new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!watchKeys.containsKey(dir)) {
+                    WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                    directories.put(key, dir);
+                    watchKeys.put(dir, key);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (file.toString().endsWith(EXTENSION)) {
+                    found.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return found;
+    }
+
+    private static byte[] hash(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-256 is required on every Java platform
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package cli;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MainTest {
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+    private final Main main = new Main(new PrintStream(out), new PrintStream(err));
+
+    @Test
+    @DisplayName("Parse a directory")
+    public void testParseDirectory() {
+        int exitCode = main.run(new String[]{"parse", getPath()}, 0);
+        assertEquals(1, exitCode, err.toString());
+        assertTrue(out.toString().contains(getPath() + File.separator + "complexProgram.pt: ok"));
+        assertTrue(err.toString().contains("incorrectSyntax1.pt: error: Incorrect syntax: expected ;, found: }"));
+    }
+
+    @Test
+    @DisplayName("Read error is reported with its reason")
+    public void testReadError() {
+        String path = getPath() + File.separator + "missing.pt";
+        int exitCode = main.run(new String[]{"check", path}, 0);
+        assertEquals(2, exitCode);
+        assertTrue(err.toString().startsWith(path + ": error: cannot read: " + path + " ("), err.toString());
+    }
+
+    @Test
+    @DisplayName("Check a correct file with timing")
+    public void testCheckWithTiming() {
+        int exitCode = main.run(new String[]{"check", "--timing", getPath() + File.separator + "complexMathExpr.pt"}, 0);
+        assertEquals(0, exitCode);
+        assertEquals("", out.toString());
+        assertTrue(err.toString().startsWith("timing: startup 0 ms"));
+    }
+
+    @Test
+    @DisplayName("Dump AST with lazy function bodies")
+    public void testDumpAst() {
+        String path = getPath() + File.separator + "complexMathExpr.pt";
+        int exitCode = main.run(new String[]{"dump-ast", "--lazy", path}, 0);
+        assertEquals(0, exitCode);
+        assertTrue(out.toString().startsWith("== " + path + " ==\nProgram:\n  Statement:\n    Assignment: \n"));
+    }
+
+    @Test
+    @DisplayName("Footprint per node type")
+    public void testFootprint() {
+        String path = getPath() + File.separator + "complexMathExpr.pt";
+        int exitCode = main.run(new String[]{"footprint", path}, 0);
+        assertEquals(0, exitCode, err.toString());
+        assertTrue(out.toString().startsWith("== " + path + " ==\nAssignment "));
+        assertTrue(out.toString().contains("bytes per source byte)"));
+    }
+
+    @Test
+    @DisplayName("Pipelined parsing reports the same errors")
+    public void testPipelined() {
+        int exitCode = main.run(new String[]{"check", "--pipelined", getPath()}, 0);
+        assertEquals(1, exitCode);
+        ByteArrayOutputStream sequentialErr = new ByteArrayOutputStream();
+        Main sequential = new Main(new PrintStream(new ByteArrayOutputStream()), new PrintStream(sequentialErr));
+        assertEquals(1, sequential.run(new String[]{"check", getPath()}, 0));
+        assertEquals(sequentialErr.toString(), err.toString());
+    }
+
+    @Test
+    @DisplayName("Parse without building the AST")
+    public void testNoAst() {
+        int exitCode = main.run(new String[]{"parse", "--no-ast", getPath()}, 0);
+        assertEquals(1, exitCode);
+        assertTrue(out.toString().contains(getPath() + File.separator + "complexProgram.pt: ok"));
+        assertTrue(err.toString().contains("incorrectSyntax1.pt: error: SYNTAX_ERROR at Pos(line="), err.toString());
+    }
+
+    @Test
+    @DisplayName("Unknown command")
+    public void testUnknownCommand() {
+        assertEquals(2, main.run(new String[]{"run"}, 0));
+        assertTrue(err.toString().startsWith("error: unknown command run"));
+    }
+
+    private String getPath() {
+        return "src" + File.separator + "test" + File.separator + "resources";
+    }
+}
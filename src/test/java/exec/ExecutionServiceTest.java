@@ -0,0 +1,133 @@
+package exec;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import parser.ExecutionBudget;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExecutionServiceTest {
+    private static final String FIB = """
+            int fib(n) {
+                if (n < 2) {
+                    return n;
+                }
+                a = fib(n - 1);
+                b = fib(n - 2);
+                return a + b;
+            }
+            x = fib(15);
+            print(x);
+            """;
+
+    @Test
+    @DisplayName("Concurrent executions have isolated globals and output")
+    public void testIsolation() {
+        try (ExecutionService service = new ExecutionService(8, ExecutionBudget.UNTRUSTED, 16)) {
+            List<CompletableFuture<ExecutionService.Result>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                results.add(service.submit("x = " + i + "; int twice(a) { return a * 2; } y = twice(x); print(y);"));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                ExecutionService.Result result = results.get(i).join();
+                assertTrue(result.isOk(), result.error());
+                assertEquals(i * 2 + System.lineSeparator(), result.output());
+            }
+            ExecutionService.Metrics metrics = service.metrics();
+            assertEquals(200, metrics.submitted());
+            assertEquals(200, metrics.completed());
+            assertTrue(metrics.executionsPerSecond() > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Step budget stops infinite recursion")
+    public void testStepBudget() {
+        try (ExecutionService service = new ExecutionService(2, ExecutionBudget.UNTRUSTED.withMaxSteps(1000), 16)) {
+            ExecutionService.Result result = service.submit("int f(n) { m = f(n + 1); return m; } f(0);").join();
+            assertEquals("Execution budget exceeded: STEPS (max 1000)", result.error());
+            assertEquals(1000, result.steps());
+            assertEquals(1, service.metrics().budgetExceeded());
+        }
+    }
+
+    @Test
+    @DisplayName("Call depth budget stops deep recursion before the stack overflows")
+    public void testCallDepthBudget() {
+        try (ExecutionService service = new ExecutionService(2, ExecutionBudget.UNLIMITED.withMaxCallDepth(100), 16)) {
+            ExecutionService.Result result = service.submit("int f(n) { m = f(n + 1); return m; } f(0);").join();
+            assertEquals("Execution budget exceeded: CALL_DEPTH (max 100)", result.error());
+            assertEquals(1, service.metrics().budgetExceeded());
+            ExecutionService.Result shallow = service.submit("int f(n) { if (n > 0) { m = f(n - 1); return m; } return 0; } x = f(99);").join();
+            assertTrue(shallow.isOk(), shallow.error());
+        }
+    }
+
+    @Test
+    @DisplayName("Memory budget stops a growing string before it is built")
+    public void testMemoryBudget() {
+        String src = "s = \"0123456789\";\n" + "s = s + s;\n".repeat(30) + "print(s);";
+        try (ExecutionService service = new ExecutionService(2, ExecutionBudget.UNTRUSTED.withMaxMemoryBytes(1 << 20), 16)) {
+            ExecutionService.Result result = service.submit(src).join();
+            assertEquals("Execution budget exceeded: MEMORY (max 1048576)", result.error());
+            assertTrue(result.memoryBytes() <= 1 << 20);
+            assertEquals("", result.output());
+        }
+    }
+
+    @Test
+    @DisplayName("Parsed programs are shared and waiting executions are queued")
+    public void testCacheAndQueue() {
+        try (ExecutionService service = new ExecutionService(1, ExecutionBudget.UNTRUSTED, 16)) {
+            List<CompletableFuture<ExecutionService.Result>> results = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                results.add(service.submit(FIB));
+            }
+            results.forEach(result -> assertEquals("610" + System.lineSeparator(), result.join().output()));
+            ExecutionService.Metrics metrics = service.metrics();
+            assertEquals(10, metrics.cacheHits() + metrics.cacheMisses());
+            assertEquals(9, metrics.cacheHits()); // one execution at a time, only the first one parses
+            assertTrue(metrics.maxQueueNanos() >= metrics.averageQueueNanos());
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent executions of a new source parse it once")
+    public void testConcurrentParse() {
+        String src = "x = 1;\n".repeat(20_000) + FIB; // takes a while to parse
+        try (ExecutionService service = new ExecutionService(16, ExecutionBudget.UNTRUSTED, 16)) {
+            List<CompletableFuture<ExecutionService.Result>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                results.add(service.submit(src));
+            }
+            results.forEach(result -> assertEquals("610" + System.lineSeparator(), result.join().output()));
+            assertEquals(1, service.metrics().cacheMisses());
+            assertEquals(63, service.metrics().cacheHits());
+        }
+    }
+
+    @Test
+    @DisplayName("Programs with errors are not cached")
+    public void testErrorsNotCached() {
+        try (ExecutionService service = new ExecutionService(1, ExecutionBudget.UNTRUSTED, 16)) {
+            assertFalse(service.submit("x = @;").join().isOk());
+            assertFalse(service.submit("x = @;").join().isOk());
+            assertEquals(2, service.metrics().cacheMisses());
+        }
+    }
+
+    @Test
+    @DisplayName("Syntax errors are reported in the result")
+    public void testSyntaxError() {
+        try (ExecutionService service = new ExecutionService(1, ExecutionBudget.UNTRUSTED, 16)) {
+            ExecutionService.Result result = service.submit("x = @;").join();
+            assertFalse(result.isOk());
+            assertTrue(result.error().startsWith("Incorrect token"), result.error());
+            assertEquals(1, service.metrics().failed());
+        }
+    }
+}
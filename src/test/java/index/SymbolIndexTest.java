@@ -0,0 +1,76 @@
+package index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parser.SymbolOccurrences.Kind;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SymbolIndexTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Declarations, calls, assignments and references")
+    public void testFind() throws IOException {
+        Path a = write("a.pt", "int add(a, b) {\n    return a + b;\n}\n");
+        Path b = write("b.pt", "c = add(1, 2);\nadd(c, 3);\nx = c * 2;\n");
+        SymbolIndex index = SymbolIndex.open(dir.resolve("symbols.idx"));
+        assertEquals(new SymbolIndex.Update(2, 0, 0), index.updateTree(dir));
+
+        assertEquals(List.of(
+                new SymbolIndex.Posting(a, Kind.DECLARATION, 1, 5),
+                new SymbolIndex.Posting(b, Kind.CALL, 1, 5),
+                new SymbolIndex.Posting(b, Kind.CALL, 2, 1)), index.find("add"));
+        assertEquals(List.of(new SymbolIndex.Posting(b, Kind.ASSIGNMENT, 1, 1)), index.find("c", Kind.ASSIGNMENT));
+        assertEquals(3, index.find("c", Kind.REFERENCE).size() + index.find("c", Kind.ASSIGNMENT).size());
+        assertEquals(List.of(new SymbolIndex.Posting(a, Kind.PARAMETER, 1, 9), new SymbolIndex.Posting(a, Kind.REFERENCE, 2, 12)),
+                index.find("a"));
+        assertTrue(index.find("missing").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Only changed files are reparsed and removed files are dropped")
+    public void testIncrementalUpdate() throws IOException {
+        Path a = write("a.pt", "x = 1;\n");
+        Path b = write("b.pt", "y = x;\n");
+        Path c = write("c.pt", "z = x;\n");
+        Path indexFile = dir.resolve("symbols.idx");
+        SymbolIndex index = SymbolIndex.open(indexFile);
+        index.updateTree(dir);
+
+        write("b.pt", "y = 2;\nx = y;\n");
+        Files.setLastModifiedTime(b, FileTime.fromMillis(Files.getLastModifiedTime(b).toMillis() + 1000));
+        Files.delete(c);
+        assertEquals(new SymbolIndex.Update(1, 1, 1), index.updateTree(dir));
+        assertEquals(List.of(new SymbolIndex.Posting(a, Kind.ASSIGNMENT, 1, 1), new SymbolIndex.Posting(b, Kind.ASSIGNMENT, 2, 1)),
+                index.find("x"));
+        assertTrue(index.find("z").isEmpty());
+
+        SymbolIndex reopened = SymbolIndex.open(indexFile); // the index is persistent
+        assertEquals(List.of(a, b), reopened.files());
+        assertEquals(index.find("x"), reopened.find("x"));
+        assertEquals(new SymbolIndex.Update(0, 2, 0), reopened.updateTree(dir));
+    }
+
+    @Test
+    @DisplayName("Files with syntax errors are kept without postings")
+    public void testSyntaxError() throws IOException {
+        Path a = write("a.pt", "x = @;\n");
+        SymbolIndex index = SymbolIndex.open(dir.resolve("symbols.idx"));
+        index.updateTree(dir);
+        assertEquals(List.of(a), index.files());
+        assertEquals(0, index.symbolCount());
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(dir.resolve(name), content).toAbsolutePath().normalize();
+    }
+}
@@ -8,6 +8,13 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -46,6 +53,129 @@ public class LexerTest {
         Assertions.assertFalse(iterator.hasNext());
     }
 
+    @ParameterizedTest
+    @MethodSource("provideTestCases")
+    @DisplayName("Vectorized scanner gives the same tokens")
+    void testVectorizedLexer(String input, List<Token> expectedTokens) {
+        List<Token> actualTokens = new ArrayList<>();
+        new Lexer(input, true).forEach(actualTokens::add);
+        Assertions.assertEquals(expectedTokens, actualTokens);
+    }
+
+    @Test
+    @DisplayName("Vectorized scanner on runs longer than a vector")
+    public void testVectorizedLongRuns() {
+        String input = "  \t \n".repeat(40) + "long_identifier_$_".repeat(10) + " = -" + "1234567890".repeat(3) + ";\n"
+                + "print(\"" + "text with \\\"escapes\\\" ".repeat(10) + "\u00e9\u00e9\");\u2003\n  int intx;";
+        List<Token> scalarTokens = new ArrayList<>();
+        new Lexer(input).forEach(scalarTokens::add);
+        List<Token> vectorizedTokens = new ArrayList<>();
+        new Lexer(input, true).forEach(vectorizedTokens::add);
+        Assertions.assertEquals(scalarTokens, vectorizedTokens);
+    }
+
+    @Test
+    @DisplayName("Vectorized scanner falls back to the scalar one without the incubator module")
+    public void testVectorizedWithoutModule() throws IOException, InterruptedException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        // the classes are compiled with preview features enabled, the incubator module is left out
+        Process process = new ProcessBuilder(java, "--enable-preview", "-cp", System.getProperty("java.class.path"),
+                LexWithoutVectorModule.class.getName())
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        Assertions.assertEquals(0, process.waitFor(), output);
+        List<Token> expectedTokens = new ArrayList<>();
+        new Lexer(LexWithoutVectorModule.INPUT).forEach(expectedTokens::add);
+        Assertions.assertEquals(expectedTokens.toString(), output.strip());
+    }
+
+    // Lexes with the vectorized scanner requested in a JVM started without --add-modules jdk.incubator.vector
+    static class LexWithoutVectorModule {
+        static final String INPUT = "int x = 1;\nprint(\"text\", x);";
+
+        public static void main(String[] args) {
+            List<Token> tokens = new ArrayList<>();
+            new Lexer(INPUT, true).forEach(tokens::add);
+            System.out.println(tokens);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestCases")
+    @DisplayName("Off-heap tokens are the same tokens")
+    void testOffHeapTokens(String input, List<Token> expectedTokens) {
+        try (Arena arena = Arena.ofConfined()) {
+            OffHeapTokens tokens = OffHeapTokens.lex(input, arena);
+            List<Token> actualTokens = new ArrayList<>();
+            tokens.forEach(actualTokens::add);
+            Assertions.assertEquals(expectedTokens, actualTokens);
+            Assertions.assertEquals(expectedTokens.size(), tokens.size());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestCases")
+    @DisplayName("Byte-level lexer gives the same tokens")
+    void testUtf8Lexer(String input, List<Token> expectedTokens) {
+        List<Token> actualTokens = new ArrayList<>();
+        new Utf8Lexer(input.getBytes(StandardCharsets.UTF_8)).forEach(actualTokens::add);
+        Assertions.assertEquals(expectedTokens, actualTokens);
+    }
+
+    @Test
+    @DisplayName("Byte-level lexer counts columns in chars of multi-byte text")
+    public void testUtf8LexerMultiByte() {
+        String input = "x = \"\u043f\u0440\u0438\u0432\u0435\u0442 \\\"\ud83d\ude00\\\" \u00e9\";\u2003y\u3000= 1;\r\n"
+                + "print(\"\u4e2d\u6587\", x);\n";
+        List<Token> expectedTokens = new ArrayList<>();
+        new Lexer(input).forEach(expectedTokens::add);
+        List<Token> arrayTokens = new ArrayList<>();
+        new Utf8Lexer(input.getBytes(StandardCharsets.UTF_8)).forEach(arrayTokens::add);
+        Assertions.assertEquals(expectedTokens, arrayTokens);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(input.length() * 4);
+        direct.put(input.getBytes(StandardCharsets.UTF_8)).flip();
+        List<Token> directTokens = new ArrayList<>();
+        new Utf8Lexer(direct).forEach(directTokens::add);
+        Assertions.assertEquals(expectedTokens, directTokens);
+        Assertions.assertEquals(new Lexer.Pos(1, 24), directTokens.get(4).pos()); // after 17 chars of the string, the surrogate pair is 2
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideIncorrectInputs")
+    @DisplayName("Byte-level lexer reports the same errors")
+    void testUtf8LexerErrors(String input) {
+        RuntimeException expected = Assertions.assertThrows(RuntimeException.class, () -> new Lexer(input).forEach(token -> {
+        }));
+        RuntimeException actual = Assertions.assertThrows(RuntimeException.class,
+                () -> new Utf8Lexer(input.getBytes(StandardCharsets.UTF_8)).forEach(token -> {
+                }));
+        Assertions.assertEquals(expected.getCause().getMessage(), actual.getCause().getMessage());
+    }
+
+    private static Stream<String> provideIncorrectInputs() {
+        return Stream.of("x = @;", "x = 1;\n  y = !x;", "x = \"abc", "x = \"\u00e9\\q\";", "x = \"\u00e9\\\u00e9\";",
+                "\u00e9 = 1;", "x = \"a\\", "\ud83d\ude00");
+    }
+
+    @Test
+    @DisplayName("Byte-level lexer of a memory-mapped file")
+    public void testUtf8LexerMappedFile() throws IOException {
+        Path file = Files.createTempFile("program", ".pt");
+        try {
+            String input = "int f(a) {\n    print(\"\u00fcber\");\n    return a * 2;\n}\n";
+            Files.writeString(file, input);
+            List<Token> expectedTokens = new ArrayList<>();
+            new Lexer(input).forEach(expectedTokens::add);
+            List<Token> actualTokens = new ArrayList<>();
+            Utf8Lexer.mapFile(file).forEach(actualTokens::add);
+            Assertions.assertEquals(expectedTokens, actualTokens);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
     private static Stream<Arguments> provideTestCases() {
         return Stream.of(
                 Arguments.of(
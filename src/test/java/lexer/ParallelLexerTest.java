@@ -0,0 +1,51 @@
+package lexer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+
+public class ParallelLexerTest {
+    @Test
+    @DisplayName("Empty Input")
+    public void testEmptyInput() {
+        Assertions.assertFalse(new ParallelLexer("").iterator().hasNext());
+    }
+
+    @Test
+    @DisplayName("Same tokens as the sequential lexer with strings crossing chunks")
+    public void testSameTokensAsLexer() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            sb.append("x").append(i).append(" = -").append(i).append(" + y;\n");
+            if (i % 7 == 0) {
+                sb.append("print(\"multi\nline \\\"string\\\"\n\n\", ").append(i).append("); z = 1;\n");
+            }
+        }
+        String src = sb.toString();
+        Assertions.assertEquals(lex(new Lexer(src)), lex(new ParallelLexer(src, 8, 16, ForkJoinPool.commonPool(), false)));
+    }
+
+    @Test
+    @DisplayName("Same error as the sequential lexer")
+    public void testSameError() {
+        String src = "x = 1;\n".repeat(100) + "y = \"unterminated\n" + "z = 2;\n".repeat(100);
+        List<Token> expectedTokens = new ArrayList<>();
+        RuntimeException expected = Assertions.assertThrows(RuntimeException.class, () -> new Lexer(src).forEach(expectedTokens::add));
+        List<Token> actualTokens = new ArrayList<>();
+        RuntimeException actual = Assertions.assertThrows(RuntimeException.class,
+                () -> new ParallelLexer(src, 8, 16, ForkJoinPool.commonPool(), false).forEach(actualTokens::add));
+        Assertions.assertEquals(expectedTokens, actualTokens);
+        Assertions.assertEquals(expected.getMessage(), actual.getMessage());
+    }
+
+    private static List<Token> lex(Iterable<Token> lexer) {
+        List<Token> tokens = new ArrayList<>();
+        lexer.forEach(tokens::add);
+        return tokens;
+    }
+}
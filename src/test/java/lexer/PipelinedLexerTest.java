@@ -0,0 +1,85 @@
+package lexer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+
+public class PipelinedLexerTest {
+    @Test
+    @DisplayName("Empty Input")
+    public void testEmptyInput() {
+        try (PipelinedLexer lexer = new PipelinedLexer("")) {
+            Assertions.assertFalse(lexer.iterator().hasNext());
+        }
+    }
+
+    @Test
+    @DisplayName("Same tokens as the sequential lexer with a full ring")
+    public void testSameTokensAsLexer() {
+        String src = "int f(a) {\n    return a * 2;\n}\nx = f(3) + \"str\\\"ing\";\n".repeat(500);
+        try (PipelinedLexer lexer = new PipelinedLexer(src, 3, 2, false)) {
+            Assertions.assertEquals(lex(new Lexer(src)), lex(lexer));
+        }
+    }
+
+    @Test
+    @DisplayName("Same error as the sequential lexer after the same tokens")
+    public void testSameError() {
+        String src = "x = 1;\n".repeat(100) + "y = \"unterminated\n" + "z = 2;\n".repeat(100);
+        List<Token> expectedTokens = new ArrayList<>();
+        RuntimeException expected = Assertions.assertThrows(RuntimeException.class, () -> new Lexer(src).forEach(expectedTokens::add));
+        List<Token> actualTokens = new ArrayList<>();
+        try (PipelinedLexer lexer = new PipelinedLexer(src, 16, 4, false)) {
+            RuntimeException actual = Assertions.assertThrows(RuntimeException.class, () -> lexer.forEach(actualTokens::add));
+            Assertions.assertEquals(expectedTokens, actualTokens);
+            Assertions.assertEquals(expected.getMessage(), actual.getMessage());
+            Assertions.assertInstanceOf(Lexer.LexerException.class, actual.getCause());
+        }
+    }
+
+    @Test
+    @DisplayName("Closing stops the producer waiting on a full ring")
+    public void testCloseStopsProducer() throws InterruptedException {
+        PipelinedLexer lexer = new PipelinedLexer("x = 1;\n".repeat(10_000), 4, 2, false);
+        Iterator<Token> iterator = lexer.iterator();
+        Assertions.assertTrue(iterator.hasNext());
+        lexer.close();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (Thread.getAllStackTraces().keySet().stream().anyMatch(t -> t.getName().equals("pipelined-lexer"))) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "Producer thread is still running");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    @DisplayName("Error of the producer is rethrown by the consumer")
+    public void testProducerError() {
+        String src = "x = 1;\n".repeat(100);
+        CharScanner failing = new ScalarCharScanner(src) {
+            @Override
+            public int identifierEnd(int from) {
+                if (from > src.length() / 2) {
+                    throw new OutOfMemoryError("Simulated");
+                }
+                return super.identifierEnd(from);
+            }
+        };
+        try (PipelinedLexer lexer = new PipelinedLexer(src, failing, 16, 4)) {
+            List<Token> tokens = new ArrayList<>();
+            OutOfMemoryError error = Assertions.assertThrows(OutOfMemoryError.class, () -> lexer.forEach(tokens::add));
+            Assertions.assertEquals("Simulated", error.getMessage());
+            Assertions.assertFalse(tokens.isEmpty());
+        }
+    }
+
+    private static List<Token> lex(Iterable<Token> lexer) {
+        List<Token> tokens = new ArrayList<>();
+        lexer.forEach(tokens::add);
+        return tokens;
+    }
+}
@@ -0,0 +1,138 @@
+package parser;
+
+import lexer.Lexer;
+import lexer.Token;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Performance guards: Lexer and Parser must stay near-linear in time and allocations on pathological inputs.
+// Every input is generated at sizes n, 2n, 4n, 8n and the growth exponent log(cost(8n) / cost(n)) / log(8) is checked.
+// Time is the CPU time of the thread, so other threads of the JVM and the machine don't skew it.
+// The inputs run on a thread with a fixed stack, so a change that makes recursion deeper per nesting level fails too.
+public class AdversarialInputTest {
+    private static final int[] SCALES = {1, 2, 4, 8};
+    private static final int RUNS = 5; // the best run of every size is used
+    private static final double MAX_TIME_EXPONENT = 1.5; // quadratic behavior gives 2
+    private static final double MAX_ALLOCATION_EXPONENT = 1.2;
+    private static final long STACK_SIZE = 8L * 1024 * 1024;
+    private static final long MAX_RUN_NANOS = 2_000_000_000L; // a linear run of the largest input takes milliseconds
+
+    private static final Consumer<String> LEX = src -> {
+        try {
+            for (Token token : new Lexer(src)) {
+                token.repr();
+            }
+        } catch (RuntimeException e) {
+            // lexer errors are expected for some inputs
+        }
+    };
+
+    private static final Consumer<String> PARSE = src -> {
+        try {
+            Parser.fromSource(src, false).parse();
+        } catch (RuntimeException e) {
+            // syntax errors are expected for some inputs
+        }
+    };
+
+    private static Stream<Arguments> provideInputs() {
+        return Stream.of(
+                Arguments.of("long identifier", (IntFunction<String>) n -> "x" + "a".repeat(n * 200) + " = 1;", LEX, 1000),
+                Arguments.of("long identifier", (IntFunction<String>) n -> "x" + "a".repeat(n * 200) + " = 1;", PARSE, 1000),
+                Arguments.of("huge integer", (IntFunction<String>) n -> "x = " + "9".repeat(n * 200) + ";", LEX, 1000),
+                Arguments.of("huge integer", (IntFunction<String>) n -> "x = " + "9".repeat(n * 200) + ";", PARSE, 1000),
+                Arguments.of("many statements", (IntFunction<String>) n -> "x = x + 1;\n".repeat(n), PARSE, 2000),
+                Arguments.of("run of semicolons", (IntFunction<String>) n -> "x = 1;" + ";".repeat(n), PARSE, 25000),
+                Arguments.of("one long line", (IntFunction<String>) n -> "x = x + 1; ".repeat(n), LEX, 5000),
+                Arguments.of("long operator chain", (IntFunction<String>) n -> "x = 1" + " + 1".repeat(n) + ";", PARSE, 5000),
+                Arguments.of("nested parentheses", (IntFunction<String>) n -> "x = 1 + " + "(".repeat(n) + "1" + ")".repeat(n) + ";", PARSE, 250),
+                Arguments.of("nested if statements", (IntFunction<String>) n -> "if (x) {".repeat(n) + "y = 1;" + "}".repeat(n), PARSE, 250),
+                Arguments.of("unterminated string", (IntFunction<String>) n -> "x = 1;\n".repeat(n) + "s = \"never closed " + "a".repeat(n), LEX, 5000),
+                Arguments.of("unterminated string", (IntFunction<String>) n -> "x = 1;\n".repeat(n) + "s = \"never closed " + "a".repeat(n), PARSE, 5000)
+        );
+    }
+
+    @ParameterizedTest(name = "{0} ({index})")
+    @MethodSource("provideInputs")
+    @DisplayName("Near-linear time and allocations on adversarial inputs")
+    public void testNearLinear(String name, IntFunction<String> generator, Consumer<String> action, int baseSize) throws InterruptedException {
+        long[][] costs = runWithStack(() -> measure(generator, action, baseSize));
+        double timeExponent = exponent(costs[0]);
+        double allocationExponent = exponent(costs[1]);
+        assertTrue(timeExponent < MAX_TIME_EXPONENT,
+                name + ": time grows as n^" + String.format("%.2f", timeExponent));
+        assertTrue(allocationExponent < MAX_ALLOCATION_EXPONENT,
+                name + ": allocations grow as n^" + String.format("%.2f", allocationExponent));
+    }
+
+    // [0] -- the best CPU time of every size, ns; [1] -- the smallest allocations of every size, bytes
+    private static long[][] measure(IntFunction<String> generator, Consumer<String> action, int baseSize) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        String[] inputs = new String[SCALES.length];
+        for (int i = 0; i < SCALES.length; i++) {
+            inputs[i] = generator.apply(baseSize * SCALES[i]);
+        }
+        for (int i = 0; i < RUNS; i++) {
+            action.accept(inputs[0]); // warm up
+        }
+        for (String input : inputs) {
+            action.accept(input); // the code paths of the larger inputs are compiled before the measurement too
+        }
+        long[][] costs = new long[2][SCALES.length];
+        for (int i = 0; i < SCALES.length; i++) {
+            costs[0][i] = Long.MAX_VALUE;
+            costs[1][i] = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                long allocated = threads.getCurrentThreadAllocatedBytes();
+                long cpuStart = threads.getCurrentThreadCpuTime();
+                long start = System.nanoTime();
+                action.accept(inputs[i]);
+                long time = System.nanoTime() - start;
+                costs[0][i] = Math.min(costs[0][i], threads.getCurrentThreadCpuTime() - cpuStart);
+                costs[1][i] = Math.min(costs[1][i], threads.getCurrentThreadAllocatedBytes() - allocated);
+                if (time > MAX_RUN_NANOS) {
+                    throw new AssertionError("Input of size " + baseSize * SCALES[i] + " took " + time / 1_000_000 + " ms");
+                }
+            }
+        }
+        return costs;
+    }
+
+    private static double exponent(long[] costs) {
+        return Math.log((double) costs[costs.length - 1] / Math.max(costs[0], 1))
+                / Math.log((double) SCALES[SCALES.length - 1] / SCALES[0]);
+    }
+
+    private static long[][] runWithStack(java.util.function.Supplier<long[][]> task) throws InterruptedException {
+        AtomicReference<long[][]> result = new AtomicReference<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                result.set(task.get());
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        }, "adversarial-input", STACK_SIZE);
+        thread.start();
+        thread.join();
+        if (error.get() instanceof StackOverflowError) {
+            fail("Stack overflow with a " + STACK_SIZE + " bytes stack");
+        } else if (error.get() instanceof AssertionError assertionError) {
+            throw assertionError;
+        } else if (error.get() != null) {
+            fail(error.get());
+        }
+        return result.get();
+    }
+}
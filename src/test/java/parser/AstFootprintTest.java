@@ -0,0 +1,55 @@
+package parser;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AstFootprintTest {
+    @Test
+    @DisplayName("Nodes are counted per type")
+    public void testCounts() {
+        AstFootprint.Report report = AstFootprint.measure(Parser.fromSource("x = 1; y = x + 2; print(\"text\");", false).parse());
+        Map<String, AstFootprint.TypeFootprint> types = report.byType();
+        assertEquals(1, types.get("Program").count());
+        assertEquals(2, types.get("Assignment").count());
+        assertEquals(4, types.get("Identifier").count());
+        assertEquals(2, types.get("IntLiteral").count());
+        assertEquals(1, types.get("BinaryOp").count());
+        assertEquals(1, types.get("FuncCall").count());
+        assertEquals(1, types.get("StringLiteral").count());
+        assertEquals(12, report.nodes());
+        assertEquals(types.values().stream().mapToLong(AstFootprint.TypeFootprint::bytes).sum(), report.bytes());
+        assertEquals(2 * 24, types.get("IntLiteral").bytes()); // header, value and cached hash
+        assertTrue(types.get("Identifier").bytes() > 4 * 24); // with the names
+        assertTrue(report.bytesPerSourceByte(33) > 1);
+    }
+
+    @Test
+    @DisplayName("Shared subtrees are counted once")
+    public void testHashConsing() {
+        String src = "x = a * (b + 1); y = a * (b + 1); z = a * (b + 1);";
+        Parser parser = Parser.fromSource(src, false);
+        parser.setHashConsing(new HashConsing());
+        AstFootprint.Report shared = AstFootprint.measure(parser.parse());
+        AstFootprint.Report plain = AstFootprint.measure(Parser.fromSource(src, false).parse());
+        assertEquals(2, shared.byType().get("BinaryOp").count());
+        assertEquals(6, plain.byType().get("BinaryOp").count());
+        assertTrue(shared.bytes() < plain.bytes());
+    }
+
+    @Test
+    @DisplayName("Unparsed lazy bodies are counted as tokens")
+    public void testLazyBodies() {
+        String src = "int f(a) {\n    b = a * 2;\n    return b;\n}\n";
+        AstFootprint.Report lazy = AstFootprint.measure(Parser.fromSource(src, true).parse());
+        AstFootprint.Report eager = AstFootprint.measure(Parser.fromSource(src, false).parse());
+        assertFalse(lazy.byType().containsKey("ReturnStatement"));
+        assertEquals(1, eager.byType().get("ReturnStatement").count());
+        assertTrue(lazy.byType().get("FuncDeclaration").bytes() > eager.byType().get("FuncDeclaration").bytes());
+    }
+}
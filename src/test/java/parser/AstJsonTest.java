@@ -0,0 +1,104 @@
+package parser;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import utils.FileUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AstJsonTest {
+    @Test
+    @DisplayName("Nodes with kinds, fields and positions")
+    public void testWrite() throws IOException {
+        SourcePositions positions = new SourcePositions();
+        Parser parser = Parser.fromSource("x = 1;\nif (x > 1) { print(\"ab\"); }", false);
+        parser.setSourcePositions(positions);
+        Program program = parser.parse();
+        assertEquals("{\"kind\":\"Program\",\"nodes\":["
+                        + "{\"kind\":\"Assignment\",\"identifier\":{\"kind\":\"Identifier\",\"line\":1,\"col\":1,\"name\":\"x\"},"
+                        + "\"expr\":{\"kind\":\"IntLiteral\",\"line\":1,\"col\":5,\"value\":1}},"
+                        + "{\"kind\":\"IfStatement\",\"condition\":{\"kind\":\"BinaryOp\",\"operator\":\">\","
+                        + "\"left\":{\"kind\":\"Identifier\",\"line\":2,\"col\":5,\"name\":\"x\"},"
+                        + "\"right\":{\"kind\":\"IntLiteral\",\"line\":2,\"col\":9,\"value\":1}},"
+                        + "\"thenBlock\":{\"kind\":\"Block\",\"statements\":[{\"kind\":\"FuncCall\","
+                        + "\"identifier\":{\"kind\":\"Identifier\",\"line\":2,\"col\":14,\"name\":\"print\"},"
+                        + "\"args\":[{\"kind\":\"StringLiteral\",\"line\":2,\"col\":20,\"value\":\"\\\"ab\\\"\"}]}]}}]}",
+                write(program, positions));
+    }
+
+    @Test
+    @DisplayName("Reading gives the same program and positions")
+    public void testRoundTrip() throws IOException {
+        String src = FileUtils.readFileToString(getPath() + "complexProgram.pt")
+                + "s = \"é中😀\\t\\n\"; if (s == 1) { x = -2147483648; } else { x = 2; }";
+        SourcePositions positions = new SourcePositions();
+        Parser parser = Parser.fromSource(src, false);
+        parser.setSourcePositions(positions);
+        Program program = parser.parse();
+
+        SourcePositions readPositions = new SourcePositions();
+        Program read = AstJson.read(new ByteArrayInputStream(write(program, positions).getBytes(StandardCharsets.UTF_8)), readPositions);
+        assertEquals(program, read);
+        assertEquals(SymbolOccurrences.collect(program, positions), SymbolOccurrences.collect(read, readPositions));
+        assertEquals(positions.size(), readPositions.size());
+    }
+
+    @Test
+    @DisplayName("Writing while parsing gives the same output")
+    public void testParseAndWrite() throws IOException {
+        String src = FileUtils.readFileToString(getPath() + "complexProgram.pt");
+        SourcePositions positions = new SourcePositions();
+        Parser parser = Parser.fromSource(src, false);
+        parser.setSourcePositions(positions);
+        Program program = parser.parse();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AstJson.parseAndWrite(src, true, out);
+        assertEquals(write(program, positions), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Deep expressions don't overflow the stack")
+    public void testDeepExpression() throws IOException {
+        String src = "x = " + "1 + ".repeat(200_000) + "1;";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AstJson.parseAndWrite(src, true, out);
+        Program read = AstJson.read(new ByteArrayInputStream(out.toByteArray()), null);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        AstJson.write(read, null, written);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        AstJson.parseAndWrite(src, false, expected);
+        assertArrayEquals(expected.toByteArray(), written.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Incorrect input")
+    public void testIncorrectInput() {
+        for (String json : new String[]{"", "{\"kind\":\"Program\",\"nodes\":[", "{\"kind\":\"Program\",\"nodes\":[]} x",
+                "{\"kind\":\"Program\",\"nodes\":[{\"kind\":\"Loop\"}]}", "{\"kind\":\"Program\",\"nodes\":[{\"kind\":\"Identifier\"}]}",
+                "{\"kind\":\"Program\" \"nodes\":[]}", "{\"kind\":\"Identifier\",\"name\":\"x\"}",
+                "{\"kind\":\"Program\",\"nodes\":[{\"kind\":\"IntLiteral\",\"value\":2147483648}]}"}) {
+            IOException e = assertThrows(IOException.class,
+                    () -> AstJson.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), null), json);
+            assertTrue(e.getMessage().startsWith("Incorrect AST JSON at byte "), e.getMessage());
+        }
+    }
+
+    private static String write(Program program, SourcePositions positions) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AstJson.write(program, positions, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String getPath() {
+        return "src" + File.separator + "test" + File.separator + "resources" + File.separator;
+    }
+}
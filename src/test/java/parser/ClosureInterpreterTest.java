@@ -0,0 +1,116 @@
+package parser;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClosureInterpreterTest {
+    private static final String FIB = """
+            int fib(n) {
+                if (n < 2) {
+                    return n;
+                }
+                a = fib(n - 1);
+                b = fib(n - 2);
+                return a + b;
+            }
+            """;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    @Test
+    @DisplayName("Run a program with main")
+    public void testRunProgram() {
+        ClosureInterpreter interpreter = run("""
+                int add(a, b) {
+                    return a + b;
+                }
+                c = add(5, 6);
+                void main() {
+                    z = c * 3;
+                    if (z > 25) {
+                        print("z is greater than 25", z);
+                    } else {
+                        print("z is less than or equal to 25");
+                    }
+                }
+                """);
+        assertEquals(11, interpreter.getGlobal("c"));
+        assertEquals("z is greater than 25 33\n", out.toString());
+    }
+
+    @Test
+    @DisplayName("Recursive calls")
+    public void testRecursion() {
+        ClosureInterpreter interpreter = run(FIB + "x = fib(15);");
+        assertEquals(610, interpreter.getGlobal("x"));
+    }
+
+    @Test
+    @DisplayName("Specialized operation falls back to the generic one for other operands")
+    public void testSpecializationFallback() {
+        ClosureInterpreter interpreter = run("""
+                int f(a, b) {
+                    return a + b;
+                }
+                x = f(1, 2);
+                y = f("a", 3);
+                z = f(4, 5);
+                s = f("b", "c");
+                t = f("b", "b");
+                e = t == "bb";
+                """);
+        assertEquals(3, interpreter.getGlobal("x"));
+        assertEquals("a3", interpreter.getGlobal("y"));
+        assertEquals(9, interpreter.getGlobal("z"));
+        assertEquals("bc", interpreter.getGlobal("s"));
+        assertEquals(1, interpreter.getGlobal("e"));
+    }
+
+    @Test
+    @DisplayName("Redefinition of a function invalidates the cached call target")
+    public void testRedefinition() {
+        ClosureInterpreter interpreter = run("""
+                int g(n) {
+                    return n + 1;
+                }
+                int h(n) {
+                    r = g(n);
+                    return r;
+                }
+                a = h(1);
+                int g(n) {
+                    return n * 10;
+                }
+                b = h(1);
+                """);
+        assertEquals(2, interpreter.getGlobal("a"));
+        assertEquals(10, interpreter.getGlobal("b"));
+    }
+
+    @Test
+    @DisplayName("Runtime errors as in Interpreter")
+    public void testRuntimeErrors() {
+        Interpreter.InterpreterException exception = assertThrows(Interpreter.InterpreterException.class,
+                () -> run("x = 1 / 0;"));
+        assertEquals("Division by zero", exception.getMessage());
+        exception = assertThrows(Interpreter.InterpreterException.class, () -> run("x = y;"));
+        assertEquals("Undefined variable y", exception.getMessage());
+        exception = assertThrows(Interpreter.InterpreterException.class, () -> run("x = f(1);"));
+        assertEquals("Undefined function f", exception.getMessage());
+        exception = assertThrows(Interpreter.InterpreterException.class, () -> run(FIB + "x = fib(1, 2);"));
+        assertEquals("Function fib expects 1 arguments, got 2", exception.getMessage());
+        exception = assertThrows(Interpreter.InterpreterException.class, () -> run("x = \"a\" - 1;"));
+        assertEquals("Unsupported operator - for strings", exception.getMessage());
+    }
+
+    private ClosureInterpreter run(String src) {
+        ClosureInterpreter interpreter = new ClosureInterpreter(new PrintStream(out));
+        interpreter.run(Parser.fromSource(src, false).parse());
+        return interpreter;
+    }
+}
@@ -0,0 +1,90 @@
+package parser;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HashConsingTest {
+    @Test
+    @DisplayName("Structural equality of separately parsed programs")
+    public void testStructuralEquality() throws FileNotFoundException {
+        Program first = new Parser(getPath() + "complexProgram.pt").parse();
+        Program second = new Parser(getPath() + "complexProgram.pt").parse();
+        assertNotSame(first, second);
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        Program lazy = new Parser(getPath() + "complexProgram.pt", true).parse();
+        assertNotEquals(first, lazy); // lazy bodies are compared by tokens, eager ones by nodes
+        assertEquals(lazy, new Parser(getPath() + "complexProgram.pt", true).parse());
+        assertNotEquals(first, new Parser(getPath() + "complexMathExpr.pt").parse());
+    }
+
+    @Test
+    @DisplayName("Equal subtrees are shared")
+    public void testSharedSubtrees() {
+        HashConsing hashConsing = new HashConsing();
+        Parser parser = Parser.fromSource("x = a * (b + 1); y = a * (b + 1); print(x); print(x);", false);
+        parser.setHashConsing(hashConsing);
+        Program program = parser.parse();
+        Assignment x = (Assignment) program.getNodes().get(0);
+        Assignment y = (Assignment) program.getNodes().get(1);
+        assertSame(x.getExpr(), y.getExpr());
+        assertSame(x.getIdentifier(), ((FuncCall) program.getNodes().get(2)).getArgs().get(0));
+        assertSame(program.getNodes().get(2), program.getNodes().get(3));
+        assertEquals(Parser.fromSource("x = a * (b + 1); y = a * (b + 1); print(x); print(x);", false).parse(), program);
+        assertEquals(hashConsing.lookups() - hashConsing.size(), hashConsing.hits());
+    }
+
+    @Test
+    @DisplayName("Lazy function bodies are not parsed by sharing")
+    public void testLazyBodiesNotShared() {
+        Parser parser = Parser.fromSource("int f(a) { return a + 1; } x = a + 1;", true);
+        parser.setHashConsing(new HashConsing());
+        Program program = parser.parse();
+        assertFalse(((FuncDeclaration) program.getNodes().get(0)).isBodyParsed());
+    }
+
+    @Test
+    @DisplayName("Unparsed lazy function bodies are compared by their tokens")
+    public void testUnparsedLazyBodies() {
+        Program first = Parser.fromSource("int f(a) { return a + 1; }", true).parse();
+        Program second = Parser.fromSource("int f(a) {\n    return a + 1;\n}", true).parse();
+        Program other = Parser.fromSource("int f(a) { return a + 2; }", true).parse();
+        Program invalid = Parser.fromSource("int f(a) { return + ; }", true).parse();
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertNotEquals(first, other);
+        assertNotEquals(first, invalid); // the invalid body isn't parsed
+        assertFalse(((FuncDeclaration) first.getNodes().get(0)).isBodyParsed());
+        assertFalse(((FuncDeclaration) invalid.getNodes().get(0)).isBodyParsed());
+    }
+
+    @Test
+    @DisplayName("Equality of lazy function bodies doesn't depend on parsing them")
+    public void testLazyEqualityAfterParsing() {
+        Program first = Parser.fromSource("int f(a) { return a + 1; }", true).parse();
+        Program second = Parser.fromSource("int f(a) { return a + 1; }", true).parse();
+        Program other = Parser.fromSource("int f(a) { return a + 2; }", true).parse();
+        first.toString(0); // parses the bodies of first only
+        assertTrue(((FuncDeclaration) first.getNodes().get(0)).isBodyParsed());
+        assertEquals(first, second);
+        assertEquals(second, first);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertNotEquals(first, other);
+        other.toString(0);
+        assertNotEquals(first, other);
+    }
+
+    private String getPath() {
+        return "src" + File.separator + "test" + File.separator + "resources" + File.separator;
+    }
+}
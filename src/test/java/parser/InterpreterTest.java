@@ -0,0 +1,111 @@
+package parser;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InterpreterTest {
+    private static final String FIB = """
+            int fib(n) {
+                if (n < 2) {
+                    return n;
+                }
+                a = fib(n - 1);
+                b = fib(n - 2);
+                return a + b;
+            }
+            """;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    @Test
+    @DisplayName("Run a program with main")
+    public void testRunProgram() {
+        Interpreter interpreter = run("""
+                int add(a, b) {
+                    return a + b;
+                }
+                c = add(5, 6);
+                void main() {
+                    z = c * 3;
+                    if (z > 25) {
+                        print("z is greater than 25", z);
+                    } else {
+                        print("z is less than or equal to 25");
+                    }
+                }
+                """, Interpreter.DEFAULT_MEMO_CAPACITY);
+        assertEquals(11, interpreter.getGlobal("c"));
+        assertEquals("z is greater than 25 33\n", out.toString());
+    }
+
+    @Test
+    @DisplayName("Memoization of a pure recursive function")
+    public void testMemoization() {
+        Interpreter interpreter = run(FIB + "x = fib(40);", Interpreter.DEFAULT_MEMO_CAPACITY);
+        assertEquals(102334155, interpreter.getGlobal("x"));
+        Interpreter.MemoMetrics metrics = interpreter.memoMetricsByFunction().get("fib");
+        assertEquals(41, metrics.misses());
+        assertEquals(38, metrics.hits());
+    }
+
+    @Test
+    @DisplayName("Same results without memoization")
+    public void testWithoutMemoization() {
+        Interpreter interpreter = run(FIB + "x = fib(15);", 0);
+        assertEquals(610, interpreter.getGlobal("x"));
+        assertTrue(interpreter.memoMetricsByFunction().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Impure functions are not memoized")
+    public void testImpureFunctions() {
+        Interpreter interpreter = run("""
+                k = 2;
+                int scale(n) {
+                    return n * k;
+                }
+                int log(n) {
+                    print(n);
+                    return n;
+                }
+                a = scale(3);
+                k = 10;
+                b = scale(3);
+                c = log(1);
+                c = log(1);
+                """, Interpreter.DEFAULT_MEMO_CAPACITY);
+        assertEquals(6, interpreter.getGlobal("a"));
+        assertEquals(30, interpreter.getGlobal("b"));
+        assertEquals("1\n1\n", out.toString());
+        assertTrue(interpreter.memoMetricsByFunction().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Eviction in a small cache")
+    public void testEviction() {
+        Interpreter interpreter = run(FIB + "x = fib(20);", 2);
+        assertEquals(6765, interpreter.getGlobal("x"));
+        assertTrue(interpreter.memoMetrics().evictions() > 0);
+    }
+
+    @Test
+    @DisplayName("Runtime errors")
+    public void testRuntimeErrors() {
+        Interpreter.InterpreterException exception = assertThrows(Interpreter.InterpreterException.class,
+                () -> run("x = 1 / 0;", 0));
+        assertEquals("Division by zero", exception.getMessage());
+        exception = assertThrows(Interpreter.InterpreterException.class, () -> run("x = y;", 0));
+        assertEquals("Undefined variable y", exception.getMessage());
+    }
+
+    private Interpreter run(String src, int memoCapacity) {
+        Interpreter interpreter = new Interpreter(new PrintStream(out), memoCapacity);
+        interpreter.run(Parser.fromSource(src, false).parse());
+        return interpreter;
+    }
+}
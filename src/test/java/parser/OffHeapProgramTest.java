@@ -0,0 +1,81 @@
+package parser;
+
+import lexer.Lexer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import utils.FileUtils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OffHeapProgramTest {
+    @Test
+    @DisplayName("Same AST as the heap parse")
+    public void testSameAst() throws FileNotFoundException {
+        String src = FileUtils.readFileToString(getPath() + "complexProgram.pt") + "if (x == 1) { return x; } else { y = \"s\"; }";
+        try (OffHeapProgram program = OffHeapProgram.parse(src, false)) {
+            assertEquals(Parser.fromSource(src, false).parse().toString(0), program.toString());
+            assertEquals(6, program.size());
+            assertTrue(program.allocatedBytes() > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Memory grows with the program")
+    public void testAllocation() throws FileNotFoundException {
+        try (OffHeapProgram program = OffHeapProgram.parse("x = 1;", false)) {
+            assertTrue(program.allocatedBytes() < 8 * 1024, program.allocatedBytes() + " bytes");
+        }
+        // the node records take many pages of growing sizes
+        String src = FileUtils.readFileToString(getPath() + "complexProgram.pt").repeat(2000);
+        try (OffHeapProgram program = OffHeapProgram.parse(src, false)) {
+            assertEquals(Parser.fromSource(src, false).parse().toString(0), program.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Closed program can't be read")
+    public void testClosed() {
+        OffHeapProgram program = OffHeapProgram.parse("x = 1;", false);
+        program.close();
+        assertThrows(IllegalStateException.class, program::toProgram);
+    }
+
+    @Test
+    @DisplayName("Only a shared program can be read from another thread")
+    public void testShared() {
+        String src = "int f(a) { return a * 2; }";
+        try (OffHeapProgram shared = OffHeapProgram.parse(src, true);
+             OffHeapProgram confined = OffHeapProgram.parse(src, false)) {
+            assertEquals(shared.toString(), CompletableFuture.supplyAsync(shared::toString).join());
+            Exception exception = assertThrows(Exception.class, () -> CompletableFuture.supplyAsync(confined::toString).join());
+            assertTrue(exception.getCause() instanceof WrongThreadException);
+        }
+    }
+
+    @Test
+    @DisplayName("Syntax errors are thrown")
+    public void testSyntaxError() throws FileNotFoundException {
+        String src = FileUtils.readFileToString(getPath() + "incorrectSyntax1.pt");
+        Parser.ParserException exception = assertThrows(Parser.ParserException.class, () -> OffHeapProgram.parse(src, false));
+        assertEquals("Incorrect syntax: expected ;, found: }", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Lexer errors are thrown as by Lexer.iterator()")
+    public void testLexerError() {
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> OffHeapProgram.parse("x = @;", false));
+        assertTrue(exception.getCause() instanceof Lexer.LexerException);
+        RuntimeException heapException = assertThrows(RuntimeException.class, () -> Parser.fromSource("x = @;", false).parse());
+        assertEquals(heapException.getClass(), exception.getClass());
+    }
+
+    private String getPath() {
+        return "src" + File.separator + "test" + File.separator + "resources" + File.separator;
+    }
+}
@@ -0,0 +1,90 @@
+package parser;
+
+import lexer.Lexer;
+import lexer.Token;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParseLimitsTest {
+    @ParameterizedTest
+    @MethodSource("provideExceededLimits")
+    @DisplayName("Exceeded limit is reported")
+    public void testExceededLimit(String src, ParseLimits limits, ParseLimits.Limit expectedLimit) {
+        Parser.LimitExceededException exception = assertThrows(Parser.LimitExceededException.class,
+                () -> Parser.fromSource(src, false, limits, new CancellationToken()).parse());
+        assertEquals(expectedLimit, exception.getLimit());
+    }
+
+    private static Stream<Arguments> provideExceededLimits() {
+        return Stream.of(
+                Arguments.of("x = \"éé\";", ParseLimits.UNLIMITED.withMaxSourceBytes(10), ParseLimits.Limit.SOURCE_BYTES),
+                Arguments.of("x = 1;\n".repeat(10), ParseLimits.UNLIMITED.withMaxTokens(30), ParseLimits.Limit.TOKENS),
+                Arguments.of("x = 1 + " + "(".repeat(50) + "1" + ")".repeat(50) + ";",
+                        ParseLimits.UNLIMITED.withMaxNestingDepth(20), ParseLimits.Limit.NESTING_DEPTH),
+                Arguments.of("if (x) {".repeat(30) + "}".repeat(30), ParseLimits.UNTRUSTED.withMaxNestingDepth(20), ParseLimits.Limit.NESTING_DEPTH),
+                Arguments.of("x = 1 + 2 + 3;", ParseLimits.UNLIMITED.withMaxNodes(4), ParseLimits.Limit.AST_NODES),
+                Arguments.of("x = 1;\n".repeat(10_000), ParseLimits.UNLIMITED.withTimeoutMillis(0), ParseLimits.Limit.DEADLINE)
+        );
+    }
+
+    @Test
+    @DisplayName("Program within limits")
+    public void testWithinLimits() throws FileNotFoundException {
+        String filePath = "src" + File.separator + "test" + File.separator + "resources" + File.separator + "complexProgram.pt";
+        Program expected = new Parser(filePath).parse();
+        Program actual = new Parser(filePath, false, ParseLimits.UNTRUSTED, new CancellationToken()).parse();
+        assertEquals(expected.toString(0), actual.toString(0));
+    }
+
+    @Test
+    @DisplayName("Cancelled parse")
+    public void testCancellation() {
+        CancellationToken cancellation = new CancellationToken();
+        Parser parser = Parser.fromSource("x = 1;\n".repeat(100), false, ParseLimits.UNLIMITED, cancellation);
+        cancellation.cancel();
+        Parser.CancelledException exception = assertThrows(Parser.CancelledException.class, parser::parse);
+        assertEquals("Parse was cancelled", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Limits of lazy function bodies")
+    public void testLazyBodyLimits() {
+        String src = "int f(a) { return 1 + " + "(".repeat(30) + "a" + ")".repeat(30) + "; }";
+        Program program = Parser.fromSource(src, true, ParseLimits.UNLIMITED.withMaxNestingDepth(20), new CancellationToken()).parse();
+        assertThrows(Parser.LimitExceededException.class, () -> program.toString(0));
+    }
+
+    @Test
+    @DisplayName("Limits of lazy function bodies apply to the whole input")
+    public void testLazyBodiesShareLimits() {
+        String functions = "int f(a) { x = a + 1; return x; }\nint g(a) { x = a + 1; return x; }";
+        // 23 nodes: the declarations and the program take 7, every body takes 8
+        assertDoesNotThrow(() -> Parser.fromSource(functions, false, ParseLimits.UNLIMITED.withMaxNodes(23), new CancellationToken()).parse());
+        Program lazy = Parser.fromSource(functions, true, ParseLimits.UNLIMITED.withMaxNodes(22), new CancellationToken()).parse();
+        Parser.LimitExceededException exception = assertThrows(Parser.LimitExceededException.class, () -> lazy.toString(0));
+        assertEquals(ParseLimits.Limit.AST_NODES, exception.getLimit());
+
+        // the body of f is at depth 3 and its parentheses reach 6 (4 if the body started from depth 0)
+        String nested = "if (1) { if (1) { int f(a) { return (((a))); } } }";
+        Program deep = Parser.fromSource(nested, true, ParseLimits.UNLIMITED.withMaxNestingDepth(5), new CancellationToken()).parse();
+        exception = assertThrows(Parser.LimitExceededException.class, () -> deep.toString(0));
+        assertEquals(ParseLimits.Limit.NESTING_DEPTH, exception.getLimit());
+
+        // the tokens of a lazy body are counted once, when it is skipped
+        long tokens = 0;
+        for (Token ignored : new Lexer(functions)) {
+            tokens++;
+        }
+        Program counted = Parser.fromSource(functions, true, ParseLimits.UNLIMITED.withMaxTokens(tokens), new CancellationToken()).parse();
+        assertDoesNotThrow(() -> counted.toString(0));
+    }
+}
@@ -1,17 +1,28 @@
 package parser;
 
+import lexer.PipelinedLexer;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import utils.FileUtils;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class ParserTest {
@@ -48,6 +59,78 @@ public class ParserTest {
         assertEquals(expectedTree.toString(0), program.toString(0));
     }
 
+    @Test
+    @DisplayName("Call in an assignment is named after the callee")
+    public void testAssignedCallName() {
+        Program program = Parser.fromSource("x = f(a, 1);", false).parse();
+        Assignment assignment = (Assignment) program.getNodes().get(0);
+        FuncCall call = (FuncCall) assignment.getExpr();
+        assertEquals("f", call.getIdentifier().getName());
+        assertEquals(new Program(List.of(new Assignment(new Identifier("x"),
+                new FuncCall(new Identifier("f"), List.of(new Identifier("a"), new IntLiteral(1)))))), program);
+    }
+
+    @Test
+    @DisplayName("Lazy function bodies")
+    public void testLazyFunctionBodies() throws FileNotFoundException {
+        Program expectedTree = getActualTree();
+        Parser parser = new Parser(getPath() + "complexProgram.pt", true);
+        Program program = parser.parse();
+        assertEquals(expectedTree.toString(0), program.toString(0));
+    }
+
+    @Test
+    @DisplayName("Lazy function body is parsed on the first access")
+    public void testLazyFunctionBodyParsedOnAccess() throws FileNotFoundException {
+        Parser parser = new Parser(getPath() + "incorrectSyntax1.pt", true);
+        Program program = parser.parse(); // the syntax error is inside the skipped body
+        Parser.ParserException exception = assertThrows(Parser.ParserException.class, () -> program.toString(0));
+        assertEquals("Incorrect syntax: expected ;, found: }", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Lazy function body accessed from several threads is parsed once")
+    public void testLazyFunctionBodyConcurrentAccess() throws InterruptedException, ExecutionException {
+        Program program = Parser.fromSource("int f(a) { b = a + 1; return b; } int g() { return 2; }", true).parse();
+        List<Callable<Block>> accesses = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            FuncDeclaration function = (FuncDeclaration) program.getNodes().get(i % 2);
+            accesses.add(function::getFuncBody);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Block>> bodies = executor.invokeAll(accesses);
+            for (int i = 0; i < bodies.size(); i++) {
+                assertSame(bodies.get(i % 2).get(), bodies.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(Parser.fromSource("int f(a) { b = a + 1; return b; } int g() { return 2; }", false).parse()
+                .toString(0), program.toString(0));
+    }
+
+    @Test
+    @DisplayName("Parsing tokens from the pipelined lexer")
+    public void testPipelinedLexer() throws FileNotFoundException {
+        Program expectedTree = getActualTree();
+        String src = FileUtils.readFileToString(getPath() + "complexProgram.pt");
+        try (PipelinedLexer lexer = new PipelinedLexer(src, 4, 2, false)) {
+            Program program = Parser.fromTokens(lexer, false, ParseLimits.UNLIMITED, new CancellationToken()).parse();
+            assertEquals(expectedTree.toString(0), program.toString(0));
+        }
+    }
+
+    @Test
+    @DisplayName("Parsing a memory-mapped file with the byte-level lexer")
+    public void testFromFile() throws IOException {
+        Program program = Parser.fromFile(Path.of(getPath() + "complexProgram.pt"), false, ParseLimits.UNLIMITED,
+                new CancellationToken()).parse();
+        assertEquals(getActualTree(), program);
+        assertThrows(Parser.LimitExceededException.class, () -> Parser.fromFile(Path.of(getPath() + "complexProgram.pt"),
+                false, ParseLimits.UNLIMITED.withMaxSourceBytes(10), new CancellationToken()));
+    }
+
     @ParameterizedTest
     @MethodSource("provideInvalidSyntaxTestCases")
     @DisplayName("Parameterized test for invalid syntax")
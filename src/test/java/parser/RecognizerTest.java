@@ -0,0 +1,91 @@
+package parser;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import utils.FileUtils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.lang.management.ManagementFactory;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecognizerTest {
+    @ParameterizedTest
+    @MethodSource("provideInputs")
+    @DisplayName("Accepts the same inputs as Parser")
+    public void testSameAsParser(String src) {
+        boolean parsed;
+        try {
+            Parser.fromSource(src, false).parse();
+            parsed = true;
+        } catch (RuntimeException e) {
+            parsed = false;
+        }
+        assertEquals(parsed, Recognizer.recognize(src).isValid(), src);
+    }
+
+    private static Stream<String> provideInputs() throws FileNotFoundException {
+        return Stream.of(
+                read("complexProgram.pt"), read("complexMathExpr.pt"), read("empty.pt"),
+                read("incorrectSyntax1.pt"), read("incorrectSyntax2.pt"),
+                "x = 1;;; y = x + 2;", "x = f(a, b + 1);", "f(1, 2)", "if (x > 1) { y = 1; } else { y = 2; }",
+                "int f(a, b) { return a + b; }", "int f(a", "void", "x = (1 + 2", "x = (1 + 2));", "x = 1 )",
+                "x", "x y", "x + 1;", "return x;", "{ { x = 1; } }", "{ x = 1; ", "if (x) y = 1;",
+                "x = 2147483647;", "x = -2147483648;", "x = 2147483648;", "x = \"unterminated", "x = @;"
+        );
+    }
+
+    @Test
+    @DisplayName("Position of the first error")
+    public void testErrorPosition() {
+        assertEquals(new Recognizer.Result(Recognizer.Status.VALID, 0, 0), Recognizer.recognize("x = 1;\ny = x;"));
+        assertEquals(new Recognizer.Result(Recognizer.Status.SYNTAX_ERROR, 2, 7), Recognizer.recognize("x = 1;\ny = 2 3;"));
+        assertEquals(new Recognizer.Result(Recognizer.Status.SYNTAX_ERROR, 1, 5), Recognizer.recognize("x = 9999999999;"));
+        assertEquals(new Recognizer.Result(Recognizer.Status.UNEXPECTED_END, 1, 10), Recognizer.recognize("x = (1 + 2"));
+        assertEquals(new Recognizer.Result(Recognizer.Status.UNEXPECTED_END, 1, 1), Recognizer.recognize("void"));
+        assertEquals(new Recognizer.Result(Recognizer.Status.LEXER_ERROR, 1, 5), Recognizer.recognize("x = @;"));
+    }
+
+    @Test
+    @DisplayName("Limits are checked as in Parser")
+    public void testLimits() {
+        String src = "x = " + "(".repeat(100) + "1" + ")".repeat(100) + ";";
+        assertThrows(Parser.LimitExceededException.class,
+                () -> Recognizer.recognize(src, ParseLimits.UNTRUSTED.withMaxNestingDepth(50), new CancellationToken()));
+        // nodes Parser would create: x, 1, 2, the sum, the assignment and the program
+        assertThrows(Parser.LimitExceededException.class,
+                () -> Parser.fromSource("x = 1 + 2;", false, ParseLimits.UNLIMITED.withMaxNodes(5), new CancellationToken()).parse());
+        assertThrows(Parser.LimitExceededException.class,
+                () -> Recognizer.recognize("x = 1 + 2;", ParseLimits.UNLIMITED.withMaxNodes(5), new CancellationToken()));
+        assertTrue(Recognizer.recognize("x = 1 + 2;", ParseLimits.UNLIMITED.withMaxNodes(6), new CancellationToken()).isValid());
+    }
+
+    @Test
+    @DisplayName("Allocates less than parsing")
+    public void testAllocation() throws FileNotFoundException {
+        String src = read("complexProgram.pt").repeat(200);
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long recognized = 0;
+        long parsed = 0;
+        for (int i = 0; i < 20; i++) { // the last run is measured
+            long start = threads.getCurrentThreadAllocatedBytes();
+            assertTrue(Recognizer.recognize(src).isValid());
+            recognized = threads.getCurrentThreadAllocatedBytes() - start;
+            start = threads.getCurrentThreadAllocatedBytes();
+            Parser.fromSource(src, false).parse();
+            parsed = threads.getCurrentThreadAllocatedBytes() - start;
+        }
+        assertTrue(recognized < parsed, recognized + " bytes allocated by the recognizer, " + parsed + " by the parser");
+    }
+
+    private static String read(String file) throws FileNotFoundException {
+        return FileUtils.readFileToString("src" + File.separator + "test" + File.separator + "resources" + File.separator + file);
+    }
+}
@@ -0,0 +1,92 @@
+package watch;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProgramWatcherTest {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @TempDir
+    Path dir;
+
+    private final BlockingQueue<ProgramWatcher.Result> results = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Path> removed = new LinkedBlockingQueue<>();
+
+    private final ProgramWatcher.Listener listener = new ProgramWatcher.Listener() {
+        @Override
+        public void onParsed(ProgramWatcher.Result result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onRemoved(Path file) {
+            removed.add(file);
+        }
+    };
+
+    @Test
+    @DisplayName("Reparse changed files only")
+    public void testReparseChangedFiles() throws IOException, InterruptedException {
+        Path file = dir.resolve("a.pt");
+        Files.writeString(file, "x = 1;");
+        try (ProgramWatcher watcher = new ProgramWatcher(dir, 20, listener)) {
+            watcher.start();
+            ProgramWatcher.Result initial = results.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull(initial);
+            assertNotNull(initial.program());
+
+            Files.writeString(file, "x = @;");
+            ProgramWatcher.Result changed = results.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull(changed);
+            assertNull(changed.program());
+            assertNotNull(changed.error());
+            assertSame(changed, watcher.lastResult(file));
+
+            Files.writeString(file, "x = @;"); // the same content
+            Files.writeString(dir.resolve("b.pt"), "y = 2;");
+            ProgramWatcher.Result created = results.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull(created);
+            assertEquals(dir.resolve("b.pt"), created.file());
+
+            Files.delete(file);
+            assertEquals(file, removed.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertTrue(results.isEmpty());
+            assertEquals(3, watcher.metrics().parsed());
+        }
+    }
+
+    @Test
+    @DisplayName("Files of a renamed directory are removed and parsed at the new path")
+    public void testRenameDirectory() throws IOException, InterruptedException {
+        Path file = dir.resolve("old").resolve("a.pt");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "x = 1;");
+        try (ProgramWatcher watcher = new ProgramWatcher(dir, 20, listener)) {
+            watcher.start();
+            assertNotNull(results.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+            Files.move(dir.resolve("old"), dir.resolve("new"));
+            assertEquals(file, removed.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            ProgramWatcher.Result moved = results.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull(moved);
+            assertEquals(dir.resolve("new").resolve("a.pt"), moved.file());
+            assertNull(watcher.lastResult(file));
+
+            Files.createDirectories(file.getParent()); // a new directory at the old path is watched
+            Files.writeString(file, "y = 2;");
+            ProgramWatcher.Result recreated = results.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull(recreated);
+            assertEquals(file, recreated.file());
+        }
+    }
+}